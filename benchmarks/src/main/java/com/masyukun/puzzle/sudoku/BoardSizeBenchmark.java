@@ -0,0 +1,98 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How the solvers scale with board size. Each board is a full grid (found by dancing links on a blank
+ * board) with a seeded 40% of its cells blanked out, so runs are reproducible. Much past 40% the big
+ * boards start landing on heavy-tailed searches that measure luck rather than the solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSizeBenchmark {
+
+	@Param({"9", "16", "25", "36"})
+	int size;
+
+	Puzzle start;
+
+	@Setup
+	public void setUp() {
+		start = partlyEmpty(size, 0.4, 20130424L);
+	}
+
+	/**
+	 * The engine under test, kept in its own state so updatePossibles isn't run once per engine.
+	 */
+	@State(Scope.Thread)
+	public static class EngineState {
+		@Param({"propagation", "dlx"})
+		String engineName;
+
+		Engine engine;
+
+		@Setup
+		public void setUp() {
+			engine = MxNSudoku.engineFor(engineName, SolveListener.NONE);
+		}
+	}
+
+	/**
+	 * A valid NxN puzzle with a fraction of its cells blanked.
+	 */
+	static Puzzle partlyEmpty(int size, double blanks, long seed) {
+		Puzzle full = new Puzzle(SudokuGeometry.forSize(size));
+		if (!new DancingLinks().solve(full)) {
+			throw new IllegalStateException("No full grid for size " + size);
+		}
+		String[][] grid = full.toGrid();
+		Random random = new Random(seed);
+		for (int ii = 0; ii < size; ++ii) {
+			for (int jj = 0; jj < size; ++jj) {
+				if (random.nextDouble() < blanks) {
+					grid[ii][jj] = Puzzle.EMPTY;
+				}
+			}
+		}
+		return new Puzzle(full.geometry(), grid);
+	}
+
+	@Benchmark
+	public boolean solve(EngineState state) {
+		return state.engine.solve(new Puzzle(start));
+	}
+
+	@Benchmark
+	public Puzzle updatePossibles() {
+		Puzzle puzzle = new Puzzle(start);
+		puzzle.updatePossibles();
+		return puzzle;
+	}
+}
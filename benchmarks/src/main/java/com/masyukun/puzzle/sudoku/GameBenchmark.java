@@ -0,0 +1,77 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end solves of the built-in games and the example SudoCue file.
+ * The timing includes copying the starting position, which is small next to a solve.
+ * The .sdk file is found through the mxnsudoku.sdk system property, or under examples/ from the
+ * repository root or the benchmarks directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+	@Param({"1", "2", "3", "4", "5", "12", "13", "sudocue"})
+	String game;
+
+	@Param({"propagation", "dlx"})
+	String engineName;
+
+	Puzzle start;
+	Engine engine;
+
+	@Setup
+	public void setUp() {
+		start = game.equals("sudocue") ? MxNSudoku.readPuzzleFile(sudocueFile()) : MxNSudoku.initGrid(Integer.parseInt(game));
+		if (null == start) {
+			throw new IllegalStateException("Couldn't read the SudoCue example; set -Dmxnsudoku.sdk=path/to/sudocue.sdk");
+		}
+		engine = MxNSudoku.engineFor(engineName, SolveListener.NONE);
+	}
+
+	static String sudocueFile() {
+		String configured = System.getProperty("mxnsudoku.sdk");
+		if (null != configured) {
+			return configured;
+		}
+		for (String candidate : new String[] { "examples/sudocue.sdk", "../examples/sudocue.sdk" }) {
+			if (new File(candidate).isFile()) {
+				return candidate;
+			}
+		}
+		return "examples/sudocue.sdk";
+	}
+
+	@Benchmark
+	public boolean solve() {
+		return engine.solve(new Puzzle(start));
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-move building blocks of the propagation solver, on the starting position of a built-in game.
+ * Moves played by solveSingles and solveExclusions are taken back through the undo trail, so every
+ * invocation sees the same board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+	@Param({"1", "4", "12", "13"})
+	int game;
+
+	Puzzle puzzle;
+	Solver solver;
+
+	@Setup
+	public void setUp() {
+		puzzle = MxNSudoku.initGrid(game);
+		solver = new Solver();
+	}
+
+	@Benchmark
+	public void updatePossibles() {
+		puzzle.updatePossibles();
+	}
+
+	@Benchmark
+	public void getNthSquare(Blackhole hole) {
+		for (int square = 0; square < puzzle.geometry().horz(); ++square) {
+			hole.consume(puzzle.getNthSquare(square));
+		}
+	}
+
+	@Benchmark
+	public int inWhichSquare() {
+		SudokuGeometry geometry = puzzle.geometry();
+		int sum = 0;
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < geometry.vert(); ++jj) {
+				sum += geometry.inWhichSquare(ii, jj);
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public boolean solveSingles() {
+		int mark = puzzle.mark();
+		boolean found = solver.solveSingles(puzzle);
+		puzzle.undo(mark);
+		return found;
+	}
+
+	@Benchmark
+	public boolean solveExclusions() {
+		int mark = puzzle.mark();
+		boolean found = solver.solveExclusions(puzzle);
+		puzzle.undo(mark);
+		return found;
+	}
+}
@@ -0,0 +1,434 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a stream of puzzles in LineFormat, one per line, writing one answer line per puzzle.
+ * Blank lines and # comments are skipped. Solved puzzles come out filled in; unsolved ones come out as
+ * far as the engine got, and lines that aren't puzzles are echoed untouched.
+ * <p>
+ * With more than one worker the puzzles are solved on a fork-join pool. Answers still come out in input
+ * order: at most a few puzzles per worker are in flight, and the oldest one is written before another is
+ * read, so memory stays flat however long the input is.
+ * <p>
+ * A SolveBudget caps the time each puzzle gets, so one nasty puzzle can't hold up a worker for long;
+ * puzzles that run out come out as far as the engine got and are tallied as timed out.
+ */
+public class BatchSolver {
+
+	/** Puzzles in flight per worker; enough to keep every worker busy while the oldest one finishes */
+	static final int WINDOW_PER_WORKER = 4;
+
+	private final Engine engine;
+	private final int workers;
+	private final SolverMetrics metrics;
+	private final int countLimit;
+	private final SolveBudget budget;
+	/** Trips the run in progress; each run gets a fresh one */
+	private volatile CancellationToken token = new CancellationToken();
+
+	/**
+	 * A single-threaded batch solver.
+	 * @param engine should be quiet -- a chatty engine will drown the output
+	 */
+	public BatchSolver(Engine engine) {
+		this(engine, 1);
+	}
+
+	/**
+	 * @param engine should be quiet and thread-safe
+	 * @param workers number of solving threads
+	 */
+	public BatchSolver(Engine engine, int workers) {
+		this(engine, workers, null);
+	}
+
+	/**
+	 * @param engine should be quiet and thread-safe
+	 * @param workers number of solving threads
+	 * @param metrics what the engine reports to, for the summary; may be null
+	 */
+	public BatchSolver(Engine engine, int workers, SolverMetrics metrics) {
+		this(engine, workers, metrics, 0);
+	}
+
+	/**
+	 * A batch solver that can count solutions instead of solving. Counting writes each puzzle back
+	 * as "count puzzle", and tallies puzzles with exactly one solution as solved and the rest as unsolved.
+	 * A count cut short by the budget or a cancel comes back as "? puzzle".
+	 * @param engine should be quiet and thread-safe
+	 * @param workers number of solving threads
+	 * @param metrics what the engine reports to, for the summary; may be null
+	 * @param countLimit count solutions up to this many; 0 to solve
+	 */
+	public BatchSolver(Engine engine, int workers, SolverMetrics metrics, int countLimit) {
+		this(engine, workers, metrics, countLimit, SolveBudget.UNLIMITED);
+	}
+
+	/**
+	 * @param engine should be quiet and thread-safe
+	 * @param workers number of solving threads
+	 * @param metrics what the engine reports to, for the summary; may be null
+	 * @param countLimit count solutions up to this many; 0 to solve
+	 * @param budget limits on each puzzle's solve or count
+	 */
+	public BatchSolver(Engine engine, int workers, SolverMetrics metrics, int countLimit, SolveBudget budget) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Need at least one worker, not " + workers);
+		}
+		if (countLimit < 0) {
+			throw new IllegalArgumentException("Can't count to " + countLimit);
+		}
+		this.engine = engine;
+		this.workers = workers;
+		this.metrics = metrics;
+		this.countLimit = countLimit;
+		this.budget = budget;
+	}
+
+	/**
+	 * Stop the run in progress from any thread. Puzzles in flight stop at their next search node, and every
+	 * puzzle still to come is written back untouched and tallied as cancelled. The next run starts afresh.
+	 */
+	public void cancel() {
+		token.cancel();
+	}
+
+	/**
+	 * Solve every puzzle from in, writing answers to out in input order.
+	 * @param in
+	 * @param out flushed, not closed, at the end
+	 * @return the tally
+	 * @throws IOException
+	 */
+	public BatchSummary run(final BufferedReader in, Writer out) throws IOException {
+		return run(new Source() {
+			public Job next() throws IOException {
+				final String line = nextPuzzle(in);
+				if (null == line) {
+					return null;
+				}
+				return new Job() {
+					public Answer call() {
+						return solveLine(line);
+					}
+				};
+			}
+		}, out);
+	}
+
+	/**
+	 * Solve every puzzle of a mapped file, writing answers to out in input order.
+	 * Lines are parsed straight from the mapped bytes on this thread; only the solving is farmed out.
+	 * @param in
+	 * @param out flushed, not closed, at the end
+	 * @return the tally
+	 * @throws IOException
+	 */
+	public BatchSummary run(final MappedPuzzleReader in, Writer out) throws IOException {
+		return run(new Source() {
+			public Job next() throws IOException {
+				if (!in.next()) {
+					return null;
+				}
+				final long started = System.nanoTime();
+				final Puzzle puzzle;
+				try {
+					puzzle = LineFormat.parse(in.line());
+				} catch (IllegalArgumentException e) {
+					final String line = in.line().toString();
+					return new Job() {
+						public Answer call() {
+							return new Answer(line, null, Thread.currentThread().getName(), System.nanoTime() - started);
+						}
+					};
+				}
+				return new Job() {
+					public Answer call() {
+						return solvePuzzle(puzzle, System.nanoTime());
+					}
+				};
+			}
+		}, out);
+	}
+
+	/**
+	 * Solve every puzzle from a PuzzleFileReader or any other iterator, writing answers to out in input order:
+	 * in LineFormat, or symbols separated by spaces for alphabets with longer symbols. A puzzle that won't
+	 * parse comes out as a # comment saying why.
+	 * @param in
+	 * @param out flushed, not closed, at the end
+	 * @return the tally
+	 * @throws IOException
+	 */
+	public BatchSummary run(final Iterator<Puzzle> in, Writer out) throws IOException {
+		return run(new Source() {
+			public Job next() throws IOException {
+				final long started = System.nanoTime();
+				final Puzzle puzzle;
+				try {
+					if (!in.hasNext()) {
+						return null;
+					}
+					puzzle = in.next();
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				} catch (IllegalArgumentException e) {
+					final String line = "# " + e.getMessage();
+					return new Job() {
+						public Answer call() {
+							return new Answer(line, null, Thread.currentThread().getName(), System.nanoTime() - started);
+						}
+					};
+				}
+				return new Job() {
+					public Answer call() {
+						return solvePuzzle(puzzle, System.nanoTime());
+					}
+				};
+			}
+		}, out);
+	}
+
+	/**
+	 * Solve every puzzle of a binary file, writing answers to out in LineFormat, in record order.
+	 * @param in
+	 * @param out flushed, not closed, at the end
+	 * @return the tally
+	 * @throws IOException
+	 */
+	public BatchSummary run(BinaryPuzzleReader in, Writer out) throws IOException {
+		return run(in, 0, in.size(), out);
+	}
+
+	/**
+	 * Solve one shard of a binary file: records from up to, but not including, to.
+	 * @param in
+	 * @param from first record
+	 * @param to one past the last record
+	 * @param out flushed, not closed, at the end
+	 * @return the tally
+	 * @throws IOException
+	 */
+	public BatchSummary run(final BinaryPuzzleReader in, final long from, final long to, Writer out) throws IOException {
+		if (from < 0 || to > in.size() || from > to) {
+			throw new IllegalArgumentException(String.format("Records %d to %d aren't in a file of %d", from, to, in.size()));
+		}
+		return run(new Source() {
+			private long next = from;
+
+			public Job next() throws IOException {
+				if (next == to) {
+					return null;
+				}
+				final Puzzle puzzle = in.puzzle(next++);
+				return new Job() {
+					public Answer call() {
+						return solvePuzzle(puzzle, System.nanoTime());
+					}
+				};
+			}
+		}, out);
+	}
+
+	private BatchSummary run(Source source, Writer out) throws IOException {
+		token = new CancellationToken();
+		BatchSummary summary = new BatchSummary();
+		summary.metrics = metrics;
+		long started = System.nanoTime();
+
+		if (workers == 1) {
+			Job job;
+			while ((job = source.next()) != null) {
+				write(job.call(), out, summary);
+			}
+		} else {
+			runParallel(source, out, summary);
+		}
+		out.flush();
+
+		summary.nanos = System.nanoTime() - started;
+		return summary;
+	}
+
+	/**
+	 * Fan puzzles out to the pool through a bounded reorder window.
+	 */
+	private void runParallel(Source source, Writer out, BatchSummary summary) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		ArrayDeque<Future<Answer>> window = new ArrayDeque<Future<Answer>>(workers * WINDOW_PER_WORKER);
+		try {
+			Job job;
+			while ((job = source.next()) != null) {
+				if (window.size() == workers * WINDOW_PER_WORKER) {
+					write(await(window.removeFirst()), out, summary);
+				}
+				window.addLast(pool.submit(job));
+			}
+			while (!window.isEmpty()) {
+				write(await(window.removeFirst()), out, summary);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the next non-blank, non-comment line, trimmed, or null at the end
+	 */
+	private static String nextPuzzle(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '#') {
+				return line;
+			}
+		}
+		return null;
+	}
+
+	private static Answer await(Future<Answer> answer) throws IOException {
+		try {
+			return answer.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a puzzle");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Write one answer and tally it. Only ever called from the thread running the batch.
+	 */
+	private static void write(Answer answer, Writer out, BatchSummary summary) throws IOException {
+		summary.puzzles += 1;
+		if (null == answer.outcome) {
+			summary.invalid += 1;
+		} else {
+			switch (answer.outcome) {
+				case SOLVED:
+					summary.solved += 1;
+					break;
+				case TIMEOUT:
+					summary.timedOut += 1;
+					break;
+				case CANCELLED:
+					summary.cancelled += 1;
+					break;
+				default:
+					summary.unsolved += 1;
+					break;
+			}
+		}
+		summary.addBusyTime(answer.thread, answer.nanos);
+		summary.slowestNanos = Math.max(summary.slowestNanos, answer.nanos);
+
+		out.write(answer.line);
+		out.write('\n');
+	}
+
+	/**
+	 * Solve one puzzle line.
+	 * @return the answer line and how it went
+	 */
+	private Answer solveLine(String line) {
+		long started = System.nanoTime();
+		Puzzle puzzle;
+		try {
+			puzzle = LineFormat.parse(line);
+		} catch (IllegalArgumentException e) {
+			return new Answer(line, null, Thread.currentThread().getName(), System.nanoTime() - started);
+		}
+		return solvePuzzle(puzzle, started);
+	}
+
+	/**
+	 * Solve one parsed puzzle. Anything that goes wrong with it is its own problem: it comes out as
+	 * a # comment saying why, tallied as invalid, and the rest of the batch carries on.
+	 * @param started when the work on it began, for the busy time
+	 * @return the answer line and how it went
+	 */
+	private Answer solvePuzzle(Puzzle puzzle, long started) {
+		String thread = Thread.currentThread().getName();
+		try {
+			CancellationToken running = token;
+			if (countLimit > 0) {
+				int solutions = running.isCancelled() ? -1 : engine.countSolutions(puzzle, countLimit, budget, running);
+				if (solutions < 0) {
+					return new Answer("? " + format(puzzle), running.isCancelled() ? SolveStatus.CANCELLED : SolveStatus.TIMEOUT,
+							thread, System.nanoTime() - started);
+				}
+				return new Answer(solutions + " " + format(puzzle), (solutions == 1) ? SolveStatus.SOLVED : SolveStatus.UNSOLVED,
+						thread, System.nanoTime() - started);
+			}
+			SolveStatus outcome = running.isCancelled() ? SolveStatus.CANCELLED : engine.solve(puzzle, budget, running);
+			return new Answer(format(puzzle), outcome, thread, System.nanoTime() - started);
+		} catch (RuntimeException e) {
+			return new Answer("# " + e, null, thread, System.nanoTime() - started);
+		}
+	}
+
+	/**
+	 * @return the puzzle in LineFormat, or space-separated when its symbols are longer than a character
+	 */
+	private static String format(Puzzle puzzle) {
+		return (puzzle.geometry().maxSymbolLength() > 1) ? LineFormat.formatSpaced(puzzle) : LineFormat.format(puzzle);
+	}
+
+	/**
+	 * Hands out the puzzles of one run, in order.
+	 */
+	private interface Source {
+		/** @return the work for the next puzzle, or null at the end */
+		Job next() throws IOException;
+	}
+
+	/**
+	 * The work for one puzzle, run on whichever thread gets it.
+	 */
+	private interface Job extends Callable<Answer> {
+		Answer call();
+	}
+
+	/**
+	 * What a worker hands back for one puzzle.
+	 */
+	private static final class Answer {
+		final String line;
+		/** How the solve ended, or null if the puzzle was no puzzle at all */
+		final SolveStatus outcome;
+		final String thread;
+		final long nanos;
+
+		Answer(String line, SolveStatus outcome, String thread, long nanos) {
+			this.line = line;
+			this.outcome = outcome;
+			this.thread = thread;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tally of one batch run.
+ */
+public class BatchSummary {
+
+	private final Map<String, Long> busyNanos = new TreeMap<String, Long>();
+
+	long puzzles = 0;
+	long solved = 0;
+	long unsolved = 0;
+	long invalid = 0;
+	long timedOut = 0;
+	long cancelled = 0;
+	long nanos = 0;
+	long slowestNanos = 0;
+	/** What the engine was doing, if anyone was counting */
+	SolverMetrics metrics = null;
+
+	/** @return puzzles read, including invalid ones */
+	public long puzzles() {
+		return puzzles;
+	}
+
+	public long solved() {
+		return solved;
+	}
+
+	public long unsolved() {
+		return unsolved;
+	}
+
+	/** @return lines that couldn't be read as a puzzle */
+	public long invalid() {
+		return invalid;
+	}
+
+	/** @return puzzles that ran out of budget */
+	public long timedOut() {
+		return timedOut;
+	}
+
+	/** @return puzzles stopped or skipped by a cancel */
+	public long cancelled() {
+		return cancelled;
+	}
+
+	/** @return the longest any one puzzle took */
+	public long slowestNanos() {
+		return slowestNanos;
+	}
+
+	/** @return wall-clock time of the whole run */
+	public long nanos() {
+		return nanos;
+	}
+
+	public double puzzlesPerSecond() {
+		return (nanos == 0) ? 0.0 : puzzles * 1e9 / nanos;
+	}
+
+	/**
+	 * @return time each solving thread spent on puzzles, by thread name
+	 */
+	public Map<String, Long> busyNanos() {
+		return Collections.unmodifiableMap(busyNanos);
+	}
+
+	/**
+	 * @return the engine's metrics, or null if the batch ran without any
+	 */
+	public SolverMetrics metrics() {
+		return metrics;
+	}
+
+	void addBusyTime(String thread, long busy) {
+		Long sofar = busyNanos.get(thread);
+		busyNanos.put(thread, (null == sofar) ? busy : sofar + busy);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder(String.format(
+				"%d puzzles in %.3f s (%.1f puzzles/sec): %d solved, %d unsolved, %d invalid",
+				puzzles, nanos / 1e9, puzzlesPerSecond(), solved, unsolved, invalid));
+		if (timedOut > 0 || cancelled > 0) {
+			report.append(String.format(", %d timed out, %d cancelled", timedOut, cancelled));
+		}
+		report.append(String.format("%n  slowest puzzle %.3f ms", slowestNanos / 1e6));
+		for (Map.Entry<String, Long> thread : busyNanos.entrySet()) {
+			report.append(String.format("%n  %s busy %.1f%%", thread.getKey(),
+					(nanos == 0) ? 0.0 : thread.getValue() * 100.0 / nanos));
+		}
+		if (null != metrics) {
+			report.append(String.format("%n")).append(metrics);
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The layout of a binary puzzle file, shared by BinaryPuzzleWriter and BinaryPuzzleReader.
+ * <p>
+ * A header, big-endian:
+ * <pre>
+ * int    magic "MXNS"
+ * int    header length in bytes, these eight included
+ * byte   version
+ * byte   flags; bit 0 set when every record carries a solution
+ * short  rows in a square
+ * short  columns in a square
+ * byte   bits per cell
+ * UTF    each symbol of the alphabet, in order (DataOutput.writeUTF)
+ * </pre>
+ * then fixed-size records to the end of the file, so record n starts at header + n * recordBytes.
+ * A record is the puzzle's cells, row by row, each alphabet index + 1 (0 for blank) in bitsPerCell bits,
+ * lowest bits first, padded to a whole byte; then, with solutions, the solution's cells the same way.
+ * An all-blank solution means none is known.
+ */
+final class BinaryFormat {
+
+	/** "MXNS" */
+	static final int MAGIC = 0x4D584E53;
+	static final int VERSION = 1;
+	static final int HAS_SOLUTIONS = 1;
+
+	final SudokuGeometry geometry;
+	final boolean solutions;
+	final int bitsPerCell;
+	/** Bytes of one packed board */
+	final int boardBytes;
+	final int recordBytes;
+	final int headerBytes;
+
+	BinaryFormat(SudokuGeometry geometry, boolean solutions, int headerBytes) {
+		this.geometry = geometry;
+		this.solutions = solutions;
+		this.bitsPerCell = 32 - Integer.numberOfLeadingZeros(geometry.numbers().size());
+		this.boardBytes = (geometry.horz() * geometry.vert() * bitsPerCell + 7) / 8;
+		this.recordBytes = solutions ? 2 * boardBytes : boardBytes;
+		this.headerBytes = headerBytes;
+	}
+
+	/**
+	 * @return the whole header for a geometry
+	 */
+	static byte[] header(SudokuGeometry geometry, boolean solutions) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(0);
+		out.writeByte(VERSION);
+		out.writeByte(solutions ? HAS_SOLUTIONS : 0);
+		out.writeShort(geometry.rowsInSquare());
+		out.writeShort(geometry.columnsInSquare());
+		out.writeByte(new BinaryFormat(geometry, solutions, 0).bitsPerCell);
+		for (String symbol : geometry.numbers()) {
+			out.writeUTF(symbol);
+		}
+		out.close();
+
+		// Now we know how long it is
+		byte[] header = bytes.toByteArray();
+		int length = header.length;
+		header[4] = (byte) (length >>> 24);
+		header[5] = (byte) (length >>> 16);
+		header[6] = (byte) (length >>> 8);
+		header[7] = (byte) length;
+		return header;
+	}
+
+	/**
+	 * Read a header written by header().
+	 * @param in positioned at the start of the file
+	 * @throws IOException if it isn't one of ours
+	 */
+	static BinaryFormat read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a binary puzzle file");
+		}
+		int headerBytes = in.readInt();
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Binary puzzle file version " + version + " is newer than this reader");
+		}
+		int flags = in.readUnsignedByte();
+		int rows = in.readUnsignedShort();
+		int cols = in.readUnsignedShort();
+		int bits = in.readUnsignedByte();
+		String[] symbols = new String[rows * cols];
+		for (int symbol = 0; symbol < symbols.length; ++symbol) {
+			symbols[symbol] = in.readUTF();
+		}
+
+		SudokuGeometry geometry;
+		try {
+			geometry = new SudokuGeometry(rows, cols, Arrays.asList(symbols));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Broken binary puzzle header: " + e.getMessage());
+		}
+		// Share the cached tables when it's a stock geometry
+		if (geometry.equals(SudokuGeometry.DEFAULT)) {
+			geometry = SudokuGeometry.DEFAULT;
+		}
+		BinaryFormat format = new BinaryFormat(geometry, (flags & HAS_SOLUTIONS) != 0, headerBytes);
+		if (format.bitsPerCell != bits) {
+			throw new IOException(String.format("Broken binary puzzle header: %d bits a cell for %d symbols", bits, symbols.length));
+		}
+		return format;
+	}
+
+	/**
+	 * Pack a puzzle's cells into a record.
+	 * @param puzzle null for an all-blank board
+	 * @param record
+	 * @param offset where the board starts in record
+	 */
+	void pack(Puzzle puzzle, byte[] record, int offset) {
+		Arrays.fill(record, offset, offset + boardBytes, (byte) 0);
+		if (null == puzzle) {
+			return;
+		}
+		int cells = geometry.horz() * geometry.vert();
+		long bit = (long) offset * 8;
+		for (int cell = 0; cell < cells; ++cell, bit += bitsPerCell) {
+			int value = puzzle.symbolAt(cell) + 1;
+			for (int done = 0; done < bitsPerCell; ) {
+				int at = (int) ((bit + done) >>> 3);
+				int shift = (int) ((bit + done) & 7);
+				int take = Math.min(8 - shift, bitsPerCell - done);
+				record[at] |= ((value >>> done) & ((1 << take) - 1)) << shift;
+				done += take;
+			}
+		}
+	}
+
+	/**
+	 * Unpack one board of a record.
+	 * @return alphabet index + 1 of every cell, as Puzzle takes them
+	 */
+	short[] unpack(byte[] record, int offset) {
+		int cells = geometry.horz() * geometry.vert();
+		short[] board = new short[cells];
+		long bit = (long) offset * 8;
+		for (int cell = 0; cell < cells; ++cell, bit += bitsPerCell) {
+			int value = 0;
+			for (int done = 0; done < bitsPerCell; ) {
+				int at = (int) ((bit + done) >>> 3);
+				int shift = (int) ((bit + done) & 7);
+				int take = Math.min(8 - shift, bitsPerCell - done);
+				value |= ((record[at] >>> shift) & ((1 << take) - 1)) << done;
+				done += take;
+			}
+			board[cell] = (short) value;
+		}
+		return board;
+	}
+}
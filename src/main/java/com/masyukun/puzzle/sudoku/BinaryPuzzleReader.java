@@ -0,0 +1,126 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file written by BinaryPuzzleWriter. Records are fixed size, so any record can be read by
+ * its index without reading the ones before it -- shards of one file can go to different workers.
+ * Reads are positional, so one reader can be shared between threads.
+ */
+public class BinaryPuzzleReader implements Closeable {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final BinaryFormat format;
+	private final long size;
+
+	/**
+	 * @param file a binary puzzle file
+	 * @throws IOException if it isn't one
+	 */
+	public BinaryPuzzleReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		try {
+			this.format = BinaryFormat.read(new DataInputStream(Channels.newInputStream(channel.position(0L))));
+		} catch (EOFException e) {
+			this.file.close();
+			throw new IOException("Not a binary puzzle file");
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+		this.size = (channel.size() - format.headerBytes) / format.recordBytes;
+	}
+
+	/**
+	 * @return true if the file starts like a binary puzzle file
+	 */
+	public static boolean isBinary(File file) {
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				return in.readInt() == BinaryFormat.MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/** @return the geometry of every puzzle in the file */
+	public SudokuGeometry geometry() {
+		return format.geometry;
+	}
+
+	/** @return true if the records carry solutions */
+	public boolean hasSolutions() {
+		return format.solutions;
+	}
+
+	/** @return number of records */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @param index 0..size()-1
+	 * @return the puzzle of a record
+	 * @throws IOException
+	 */
+	public Puzzle puzzle(long index) throws IOException {
+		return new Puzzle(format.geometry, format.unpack(record(index), 0));
+	}
+
+	/**
+	 * @param index 0..size()-1
+	 * @return the solution of a record, or null if the file has none or this one isn't known
+	 * @throws IOException
+	 */
+	public Puzzle solution(long index) throws IOException {
+		if (!format.solutions) {
+			return null;
+		}
+		Puzzle solution = new Puzzle(format.geometry, format.unpack(record(index), format.boardBytes));
+		return solution.isSolved() ? solution : null;
+	}
+
+	private byte[] record(long index) throws IOException {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Record %d of %d", index, size));
+		}
+		byte[] record = new byte[format.recordBytes];
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		long position = format.headerBytes + index * format.recordBytes;
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Record " + index + " is cut short");
+			}
+		}
+		return record;
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
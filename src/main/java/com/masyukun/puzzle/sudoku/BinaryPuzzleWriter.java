@@ -0,0 +1,164 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Writes puzzles, and optionally their solutions, in the compact binary format of BinaryFormat:
+ * a few bits a cell instead of a byte, and no parsing on the way back in.
+ */
+public class BinaryPuzzleWriter implements Closeable, Flushable {
+
+	private final OutputStream out;
+	private final BinaryFormat format;
+	private final byte[] record;
+	private long written = 0;
+
+	/**
+	 * Start a file; the header goes out straight away.
+	 * @param out wrap it in a BufferedOutputStream; closed by close()
+	 * @param geometry every puzzle written must have this geometry
+	 * @param solutions whether every record carries a solution
+	 * @throws IOException
+	 */
+	public BinaryPuzzleWriter(OutputStream out, SudokuGeometry geometry, boolean solutions) throws IOException {
+		this.out = out;
+		this.format = new BinaryFormat(geometry, solutions, 0);
+		this.record = new byte[format.recordBytes];
+		out.write(BinaryFormat.header(geometry, solutions));
+	}
+
+	/**
+	 * Write a puzzle without a solution.
+	 * @throws IllegalArgumentException if it's the wrong geometry
+	 * @throws IOException
+	 */
+	public void write(Puzzle puzzle) throws IOException {
+		write(puzzle, null);
+	}
+
+	/**
+	 * Write a puzzle and its solution. Files without solutions drop the solution.
+	 * @param puzzle
+	 * @param solution null if none is known
+	 * @throws IllegalArgumentException if either is the wrong geometry
+	 * @throws IOException
+	 */
+	public void write(Puzzle puzzle, Puzzle solution) throws IOException {
+		check(puzzle);
+		format.pack(puzzle, record, 0);
+		if (format.solutions) {
+			if (null != solution) {
+				check(solution);
+			}
+			format.pack(solution, record, format.boardBytes);
+		}
+		out.write(record);
+		written += 1;
+	}
+
+	private void check(Puzzle puzzle) {
+		if (!puzzle.geometry().equals(format.geometry)) {
+			throw new IllegalArgumentException(String.format("Record %d is a %s, not a %s", written,
+					puzzle.geometry(), format.geometry));
+		}
+	}
+
+	/** @return records written so far */
+	public long written() {
+		return written;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Convert a file of one-line puzzles, solving each one on the way if asked. Lines that aren't
+	 * puzzles, or are a different size from the first, are skipped.
+	 * @param in
+	 * @param out
+	 * @param solver solves each puzzle for the solution section; null for no solutions
+	 * @param budget limits on each solve; a puzzle that runs out gets a blank solution
+	 * @return records written
+	 * @throws IOException
+	 */
+	public static long convert(final MappedPuzzleReader in, OutputStream out, Engine solver, SolveBudget budget) throws IOException {
+		return convert(new PuzzleIterator() {
+			protected Puzzle readNext() throws IOException {
+				return in.next() ? LineFormat.parse(in.line()) : null;
+			}
+		}, out, solver, budget);
+	}
+
+	/**
+	 * Convert the puzzles of a PuzzleFileReader or any other iterator, as for a file of one-line puzzles.
+	 * @param in
+	 * @param out
+	 * @param solver as for convert
+	 * @param budget as for convert
+	 * @return records written
+	 * @throws IOException
+	 */
+	public static long convert(Iterator<Puzzle> in, OutputStream out, Engine solver, SolveBudget budget) throws IOException {
+		BinaryPuzzleWriter writer = null;
+		try {
+			while (true) {
+				Puzzle puzzle;
+				try {
+					if (!in.hasNext()) {
+						break;
+					}
+					puzzle = in.next();
+				} catch (IllegalArgumentException e) {
+					continue;
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				if (null == writer) {
+					writer = new BinaryPuzzleWriter(out, puzzle.geometry(), null != solver);
+				} else if (!puzzle.geometry().equals(writer.format.geometry)) {
+					continue;
+				}
+				writer.write(puzzle, solve(puzzle, solver, budget));
+			}
+			if (null == writer) {
+				// Not one puzzle; still a valid, empty file
+				writer = new BinaryPuzzleWriter(out, SudokuGeometry.DEFAULT, null != solver);
+			}
+			writer.flush();
+			return writer.written();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return a solved copy, or null for no solver or no solution
+	 */
+	private static Puzzle solve(Puzzle puzzle, Engine solver, SolveBudget budget) {
+		if (null == solver) {
+			return null;
+		}
+		Puzzle solution = new Puzzle(puzzle);
+		return (solver.solve(solution, budget, CancellationToken.NONE) == SolveStatus.SOLVED) ? solution : null;
+	}
+}
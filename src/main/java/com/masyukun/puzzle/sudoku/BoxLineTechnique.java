@@ -0,0 +1,80 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * Box/line reduction: when a symbol's only cells in a row (or column) all sit in one square,
+ * the symbol must go in that row, so it can't go anywhere else in the square.
+ */
+public class BoxLineTechnique implements Technique {
+
+	public String name() {
+		return "box/line";
+	}
+
+	public boolean apply(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		Candidates poss = puzzle.possibles();
+		int size = geometry.horz();
+		boolean struck = false;
+		long[] bySquare = new long[size];
+
+		for (int line = 0; line < 2 * size; ++line) {
+			// What each square crossing the line can still take on it
+			for (int nth = 0; nth < size; ++nth) {
+				int cell = geometry.unitCell(line, nth);
+				bySquare[geometry.squareOf(cell)] = 0L;
+			}
+			for (int nth = 0; nth < size; ++nth) {
+				int cell = geometry.unitCell(line, nth);
+				bySquare[geometry.squareOf(cell)] |= poss.mask(cell);
+			}
+
+			for (int nth = 0; nth < size; ++nth) {
+				int square = geometry.squareOf(geometry.unitCell(line, nth));
+				if (nth > 0 && square == geometry.squareOf(geometry.unitCell(line, nth - 1))) {
+					// Already looked at this square
+					continue;
+				}
+				long others = 0L;
+				for (int other = 0; other < size; ++other) {
+					int otherSquare = geometry.squareOf(geometry.unitCell(line, other));
+					others |= (otherSquare == square) ? 0L : poss.mask(geometry.unitCell(line, other));
+				}
+				long confined = bySquare[square] & ~others;
+				if (confined != 0) {
+					struck |= strike(puzzle, line, square, confined);
+				}
+			}
+		}
+		return struck;
+	}
+
+	/**
+	 * Strike symbols from a square, outside one line.
+	 * @return true if anything was struck
+	 */
+	private static boolean strike(Puzzle puzzle, int line, int square, long symbols) {
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		boolean struck = false;
+		for (int nth = 0; nth < size; ++nth) {
+			int cell = geometry.squareCell(square, nth);
+			boolean onLine = (line < size) ? cell / size == line : cell % size == line - size;
+			if (!onLine && (puzzle.possibles().mask(cell) & symbols) != 0) {
+				puzzle.removePossibles(cell, symbols);
+				struck = true;
+			}
+		}
+		return struck;
+	}
+}
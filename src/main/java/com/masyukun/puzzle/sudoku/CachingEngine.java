@@ -0,0 +1,174 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the answers of another engine. Puzzles are looked up by their CanonicalForm, so a repeat
+ * comes straight out of the cache even relabelled, shuffled or turned on its side, and never reaches
+ * the engine. The least recently used answers are dropped once the cache is full.
+ * Safe to share between threads, like any engine.
+ */
+public class CachingEngine implements Engine {
+
+	private final Engine engine;
+	private final int capacity;
+	private final Map<Key, Answer> answers;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param engine solves whatever isn't cached
+	 * @param capacity most answers to keep
+	 */
+	public CachingEngine(Engine engine, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("A cache needs room for at least one answer, not " + capacity);
+		}
+		this.engine = engine;
+		this.capacity = capacity;
+		this.answers = new LinkedHashMap<Key, Answer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Answer> eldest) {
+				if (size() > CachingEngine.this.capacity) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public boolean solve(Puzzle puzzle) {
+		return solve(puzzle, SolveBudget.UNLIMITED, CancellationToken.NONE) == SolveStatus.SOLVED;
+	}
+
+	/**
+	 * Only finished answers are cached: a solve that ran out of budget or was cancelled may well
+	 * have an answer, so it's asked again next time. A puzzle with no solution keeps whatever the
+	 * engine worked out before giving up, and a hit plays that back, so it ends up the same either way.
+	 * @see Engine#solve(Puzzle, SolveBudget, CancellationToken)
+	 */
+	public SolveStatus solve(Puzzle puzzle, SolveBudget budget, CancellationToken token) {
+		CanonicalForm form = CanonicalForm.of(puzzle);
+		Key key = new Key(form);
+		Answer answer;
+		synchronized (answers) {
+			answer = answers.get(key);
+		}
+
+		if (null != answer) {
+			hits.increment();
+			form.playOnto(answer.board, puzzle);
+			return answer.status;
+		}
+
+		misses.increment();
+		SolveStatus status = engine.solve(puzzle, budget, token);
+		if (status == SolveStatus.SOLVED || status == SolveStatus.UNSOLVED) {
+			answer = new Answer(form.toCanonical(puzzle), status);
+			synchronized (answers) {
+				answers.put(key, answer);
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Counts aren't cached; they go straight to the engine.
+	 */
+	public int countSolutions(Puzzle puzzle, int limit) {
+		return engine.countSolutions(puzzle, limit);
+	}
+
+	public int countSolutions(Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token) {
+		return engine.countSolutions(puzzle, limit, budget, token);
+	}
+
+	/** @return puzzles answered from the cache */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/** @return puzzles handed to the engine */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/** @return answers dropped to make room */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/** @return answers cached right now */
+	public int size() {
+		synchronized (answers) {
+			return answers.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		long lookups = hits() + misses();
+		return String.format("Cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d/%d answers kept",
+				hits(), misses(), (lookups == 0) ? 0.0 : 100.0 * hits() / lookups, evictions(), size(), capacity);
+	}
+
+	/**
+	 * How a puzzle ended, and its board at the end in canonical cells and labels: the solution,
+	 * or the moves the engine had worked out when it found there was none.
+	 */
+	private static final class Answer {
+		private final short[] board;
+		private final SolveStatus status;
+
+		Answer(short[] board, SolveStatus status) {
+			this.board = board;
+			this.status = status;
+		}
+	}
+
+	/**
+	 * A canonical board and its geometry, compared by value.
+	 */
+	private static final class Key {
+		private final SudokuGeometry geometry;
+		private final short[] board;
+		private final int hash;
+
+		Key(CanonicalForm form) {
+			this.geometry = form.geometry();
+			this.board = form.board();
+			this.hash = geometry.hashCode() * 31 + Arrays.hashCode(board);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) other;
+			return hash == that.hash && geometry.equals(that.geometry) && Arrays.equals(board, that.board);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
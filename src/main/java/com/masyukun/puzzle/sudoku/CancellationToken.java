@@ -0,0 +1,50 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * A flag that callers trip to stop solves in flight. Engines check it at every search node, so a
+ * cancelled solve stops within a node or so and reports SolveStatus.CANCELLED.
+ * A token made with a parent is also cancelled whenever its parent is.
+ */
+public final class CancellationToken {
+
+	/** A token nobody can trip, for solves that run to the end */
+	public static final CancellationToken NONE = new CancellationToken();
+
+	private final CancellationToken parent;
+	private volatile boolean cancelled = false;
+
+	public CancellationToken() {
+		this(null);
+	}
+
+	/**
+	 * @param parent cancels this token too; may be null
+	 */
+	public CancellationToken(CancellationToken parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Stop every solve watching this token, or any token under it.
+	 */
+	public void cancel() {
+		if (this == NONE) {
+			throw new UnsupportedOperationException("CancellationToken.NONE is shared and can't be cancelled");
+		}
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled || (null != parent && parent.isCancelled());
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * The matrix of possible moves, stored as bitmasks packed into longs, words() of them per cell.
+ * Bit n of a cell's mask is set when the nth symbol of the alphabet can still be played there; symbol n
+ * lives in word n / 64, at bit n % 64. Alphabets of up to 64 symbols take one word, and the long
+ * mask methods work on that one word directly; bigger alphabets go through the word methods.
+ */
+public class Candidates {
+
+	/** Symbols packed into one long */
+	public static final int WORD_SIZE = 64;
+
+	/** Largest alphabet a board can have */
+	public static final int MAX_SYMBOLS = 256;
+
+	private final int horz;
+	private final int vert;
+	private final int symbols;
+	private final int words;
+	/** words longs to a cell, cell by cell */
+	private final long[] masks;
+
+	/**
+	 * Produce an empty matrix of possible moves for a board with as many symbols as rows --
+	 * every cell starts with no candidates.
+	 * @param horz number of rows
+	 * @param vert number of columns
+	 */
+	public Candidates(int horz, int vert) {
+		this(horz, vert, horz);
+	}
+
+	/**
+	 * Produce an empty matrix of possible moves -- every cell starts with no candidates.
+	 * @param horz number of rows
+	 * @param vert number of columns
+	 * @param symbols size of the alphabet
+	 */
+	public Candidates(int horz, int vert, int symbols) {
+		this.horz = horz;
+		this.vert = vert;
+		this.symbols = symbols;
+		this.words = Math.max(1, (symbols + WORD_SIZE - 1) / WORD_SIZE);
+		this.masks = new long[horz * vert * words];
+	}
+
+	public int horz() {
+		return horz;
+	}
+
+	public int vert() {
+		return vert;
+	}
+
+	/** @return size of the alphabet */
+	public int symbols() {
+		return symbols;
+	}
+
+	/** @return longs per cell */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * @return the raw candidate bitmask of a cell; only its first word on alphabets over 64 symbols
+	 */
+	public long mask(int ii, int jj) {
+		return masks[(ii * vert + jj) * words];
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 * @return the raw candidate bitmask of a cell; only its first word on alphabets over 64 symbols
+	 */
+	public long mask(int cell) {
+		return masks[cell * words];
+	}
+
+	/**
+	 * Overwrite the candidate bitmask of a cell; only its first word on alphabets over 64 symbols.
+	 * @param cell row * vert + column
+	 */
+	public void set(int cell, long mask) {
+		masks[cell * words] = mask;
+	}
+
+	/**
+	 * Overwrite the candidate bitmask of a cell; only its first word on alphabets over 64 symbols.
+	 */
+	public void set(int ii, int jj, long mask) {
+		masks[(ii * vert + jj) * words] = mask;
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 * @param word 0..words()-1
+	 * @return the candidates of a cell among symbols 64 * word to 64 * word + 63
+	 */
+	public long word(int cell, int word) {
+		return masks[cell * words + word];
+	}
+
+	/**
+	 * Overwrite one word of a cell's candidates.
+	 * @see #word(int, int)
+	 */
+	public void setWord(int cell, int word, long bits) {
+		masks[cell * words + word] = bits;
+	}
+
+	/**
+	 * One word of the whole matrix, numbered cell * words() + word; for saving and restoring in bulk.
+	 */
+	long slot(int slot) {
+		return masks[slot];
+	}
+
+	void setSlot(int slot, long bits) {
+		masks[slot] = bits;
+	}
+
+	/**
+	 * Remove every candidate from a cell.
+	 */
+	public void clear(int ii, int jj) {
+		int first = (ii * vert + jj) * words;
+		for (int word = 0; word < words; ++word) {
+			masks[first + word] = 0L;
+		}
+	}
+
+	/**
+	 * Remove one symbol from a cell's candidates.
+	 * @return true if the symbol was a candidate
+	 */
+	public boolean remove(int ii, int jj, int symbol) {
+		long bit = 1L << symbol;
+		int slot = (ii * vert + jj) * words + symbol / WORD_SIZE;
+		if ((masks[slot] & bit) == 0) {
+			return false;
+		}
+		masks[slot] &= ~bit;
+		return true;
+	}
+
+	public boolean contains(int ii, int jj, int symbol) {
+		return contains(ii * vert + jj, symbol);
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 */
+	public boolean contains(int cell, int symbol) {
+		return (masks[cell * words + symbol / WORD_SIZE] & (1L << symbol)) != 0;
+	}
+
+	/**
+	 * @return number of candidates left in a cell
+	 */
+	public int size(int ii, int jj) {
+		return size(ii * vert + jj);
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 * @return number of candidates left in a cell
+	 */
+	public int size(int cell) {
+		if (words == 1) {
+			return Long.bitCount(masks[cell]);
+		}
+		int count = 0;
+		for (int slot = cell * words; slot < (cell + 1) * words; ++slot) {
+			count += Long.bitCount(masks[slot]);
+		}
+		return count;
+	}
+
+	/**
+	 * Get the nth candidate of a cell, in alphabet order.
+	 * @return symbol index, or -1 if the cell has fewer than n+1 candidates
+	 */
+	public int get(int ii, int jj, int n) {
+		int cell = ii * vert + jj;
+		for (int word = 0; word < words; ++word) {
+			long mask = masks[cell * words + word];
+			int count = Long.bitCount(mask);
+			if (n < count) {
+				return word * WORD_SIZE + nth(mask, n);
+			}
+			n -= count;
+		}
+		return -1;
+	}
+
+	/**
+	 * Mask with the lowest n bits set, i.e. every symbol of an n-symbol alphabet.
+	 */
+	public static long fullMask(int symbols) {
+		return (symbols >= WORD_SIZE) ? -1L : (symbols <= 0) ? 0L : (1L << symbols) - 1;
+	}
+
+	/**
+	 * Every symbol of an alphabet that falls in one word.
+	 * @param symbols size of the alphabet
+	 * @param word
+	 */
+	public static long fullWord(int symbols, int word) {
+		return fullMask(symbols - word * WORD_SIZE);
+	}
+
+	/**
+	 * Get the nth set bit of a mask, counting from the lowest.
+	 * @return bit index, or -1 if the mask has fewer than n+1 bits set
+	 */
+	public static int nth(long mask, int n) {
+		for (int count = 0; count < n && mask != 0; ++count) {
+			mask &= mask - 1;
+		}
+		return (mask == 0) ? -1 : Long.numberOfTrailingZeros(mask);
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * One puzzle moved into a standard orientation and labelling, so that variants of the same puzzle --
+ * symbols relabelled, rows shuffled within bands, bands shuffled, the same for columns and stacks, or
+ * the whole board transposed -- usually come out the same.
+ * <p>
+ * Lines are ordered by clue counts and by the clue counts of the lines crossing them, which don't change
+ * under any of those moves; symbols are then labelled in order of first appearance. Lines that tie keep
+ * their order, so a few variants come out differently, but whatever comes out is always the same puzzle
+ * and maps back exactly.
+ */
+final class CanonicalForm {
+
+	private final SudokuGeometry geometry;
+	/** Original cell of each canonical cell */
+	private final int[] cells;
+	/** Original value (index + 1) of each canonical label, from 1 */
+	private final short[] toOriginal;
+	/** Canonical label of each original value, from 1 */
+	private final short[] toCanonical;
+	/** The givens, in canonical cells and labels; 0 is blank */
+	private final short[] board;
+
+	private CanonicalForm(SudokuGeometry geometry, short[] values, int[] cells) {
+		int size = geometry.horz();
+		this.geometry = geometry;
+		this.cells = cells;
+		this.toOriginal = new short[size + 1];
+		this.toCanonical = new short[size + 1];
+		this.board = new short[cells.length];
+
+		// Label symbols by first appearance; the ones that never appear take what's left, in order
+		short next = 1;
+		for (int cell = 0; cell < cells.length; ++cell) {
+			int value = values[cells[cell]];
+			if (value != 0 && toCanonical[value] == 0) {
+				toCanonical[value] = next;
+				toOriginal[next++] = (short) value;
+			}
+		}
+		for (int value = 1; value <= size; ++value) {
+			if (toCanonical[value] == 0) {
+				toCanonical[value] = next;
+				toOriginal[next++] = (short) value;
+			}
+		}
+		for (int cell = 0; cell < cells.length; ++cell) {
+			board[cell] = toCanonical[values[cells[cell]]];
+		}
+	}
+
+	/**
+	 * Find the canonical form of a puzzle's filled cells.
+	 * @param puzzle left alone
+	 */
+	static CanonicalForm of(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		short[] values = new short[size * size];
+		int[] rowClues = new int[size];
+		int[] colClues = new int[size];
+		for (int cell = 0; cell < values.length; ++cell) {
+			values[cell] = (short) (puzzle.symbolAt(cell) + 1);
+			if (values[cell] != 0) {
+				rowClues[cell / size] += 1;
+				colClues[cell % size] += 1;
+			}
+		}
+
+		// A line's key: its clue count, then the clue counts of the lines crossing it at its clues
+		long[] rowKeys = new long[size];
+		long[] colKeys = new long[size];
+		for (int cell = 0; cell < values.length; ++cell) {
+			if (values[cell] != 0) {
+				rowKeys[cell / size] += colClues[cell % size];
+				colKeys[cell % size] += rowClues[cell / size];
+			}
+		}
+		for (int line = 0; line < size; ++line) {
+			rowKeys[line] += (long) rowClues[line] * (size * size + 1);
+			colKeys[line] += (long) colClues[line] * (size * size + 1);
+		}
+
+		int[] rowOrder = order(rowKeys, geometry.rowsInSquare());
+		int[] colOrder = order(colKeys, geometry.columnsInSquare());
+		int[] cells = new int[values.length];
+		for (int ii = 0; ii < size; ++ii) {
+			for (int jj = 0; jj < size; ++jj) {
+				cells[ii * size + jj] = rowOrder[ii] * size + colOrder[jj];
+			}
+		}
+		CanonicalForm form = new CanonicalForm(geometry, values, cells);
+
+		// Square squares can also turn over onto their side; keep whichever board is smaller
+		if (geometry.rowsInSquare() == geometry.columnsInSquare()) {
+			int[] turned = new int[values.length];
+			for (int ii = 0; ii < size; ++ii) {
+				for (int jj = 0; jj < size; ++jj) {
+					turned[ii * size + jj] = rowOrder[jj] * size + colOrder[ii];
+				}
+			}
+			CanonicalForm other = new CanonicalForm(geometry, values, turned);
+			if (compare(other.board, form.board) < 0) {
+				form = other;
+			}
+		}
+		return form;
+	}
+
+	/**
+	 * Order lines by key, bands or stacks by the sum of their lines' keys, lines within each by their own.
+	 * @param perGroup lines in a band or stack
+	 * @return the original line of each canonical line
+	 */
+	private static int[] order(long[] keys, int perGroup) {
+		int groups = keys.length / perGroup;
+		long[] groupKeys = new long[groups];
+		for (int line = 0; line < keys.length; ++line) {
+			groupKeys[line / perGroup] += keys[line];
+		}
+		int[] groupOrder = sortedBy(groupKeys, 0, groups);
+		int[] order = new int[keys.length];
+		for (int group = 0; group < groups; ++group) {
+			int[] within = sortedBy(keys, groupOrder[group] * perGroup, perGroup);
+			System.arraycopy(within, 0, order, group * perGroup, perGroup);
+		}
+		return order;
+	}
+
+	/**
+	 * @return indexes from..from+count-1 ordered by key, ties left in order
+	 */
+	private static int[] sortedBy(long[] keys, int from, int count) {
+		// Insertion sort: there are never many lines to a band
+		int[] sorted = new int[count];
+		for (int ii = 0; ii < count; ++ii) {
+			int jj = ii;
+			while (jj > 0 && keys[sorted[jj - 1]] > keys[from + ii]) {
+				sorted[jj] = sorted[jj - 1];
+				jj -= 1;
+			}
+			sorted[jj] = from + ii;
+		}
+		return sorted;
+	}
+
+	private static int compare(short[] one, short[] two) {
+		for (int cell = 0; cell < one.length; ++cell) {
+			if (one[cell] != two[cell]) {
+				return one[cell] - two[cell];
+			}
+		}
+		return 0;
+	}
+
+	SudokuGeometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * @return the givens in canonical cells and labels, 0 for blanks; don't change it
+	 */
+	short[] board() {
+		return board;
+	}
+
+	/**
+	 * Move any puzzle with the same givens -- a solution, say -- into this canonical form.
+	 * @return canonical cells and labels, 0 for blanks
+	 */
+	short[] toCanonical(Puzzle puzzle) {
+		short[] canonical = new short[cells.length];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			canonical[cell] = toCanonical[puzzle.symbolAt(cells[cell]) + 1];
+		}
+		return canonical;
+	}
+
+	/**
+	 * Play a canonical board back onto the original puzzle, on every cell still empty there.
+	 * @return false if a move left some cell with no candidates
+	 */
+	boolean playOnto(short[] canonical, Puzzle puzzle) {
+		int size = geometry.horz();
+		boolean consistent = true;
+		for (int cell = 0; cell < cells.length; ++cell) {
+			int original = cells[cell];
+			if (canonical[cell] != 0 && puzzle.isEmpty(original)) {
+				consistent &= puzzle.updateSquare(original / size, original % size, toOriginal[canonical[cell]] - 1);
+			}
+		}
+		return consistent;
+	}
+}
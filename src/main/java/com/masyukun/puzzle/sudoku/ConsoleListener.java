@@ -0,0 +1,54 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.io.PrintStream;
+
+/**
+ * Narrates a solve for people, one line per move.
+ */
+public class ConsoleListener implements SolveListener {
+
+	private final PrintStream out;
+
+	/**
+	 * Narrate to System.out.
+	 */
+	public ConsoleListener() {
+		this(System.out);
+	}
+
+	public ConsoleListener(PrintStream out) {
+		this.out = out;
+	}
+
+	public void played(Puzzle puzzle, int ii, int jj, int index, String technique, boolean consistent) {
+		out.println("grid["+(ii+1)+"]["+(jj+1)+"] = " + puzzle.geometry().symbol(index) + " " + technique);
+		if (!consistent) {
+			out.println("grid["+(ii+1)+"]["+(jj+1)+"] left a cell with no possible moves");
+		}
+	}
+
+	public void narrowed(Puzzle puzzle, String technique) {
+		out.println("{" + technique + "} narrowed the possible moves");
+	}
+
+	public void backtracked(Puzzle puzzle, int ii, int jj, int index) {
+		out.println("grid["+(ii+1)+"]["+(jj+1)+"] = " + puzzle.geometry().symbol(index) + " was wrong, backtracking");
+	}
+
+	public void searched(Puzzle puzzle, int depth) {
+	}
+
+	public void timed(Puzzle puzzle, String phase, int steps, long nanos) {
+	}
+}
@@ -0,0 +1,316 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * Knuth's Algorithm X with dancing links. The puzzle is encoded as an exact cover problem:
+ * one matrix row per (cell, symbol) and four constraint columns per row -- the cell is filled,
+ * and the symbol appears once in its row, its column and its square.
+ * The links live in flat int arrays rather than node objects.
+ */
+public class DancingLinks implements Engine {
+
+	public boolean solve(Puzzle puzzle) {
+		return solve(puzzle, SolveBudget.UNLIMITED, CancellationToken.NONE) == SolveStatus.SOLVED;
+	}
+
+	/**
+	 * The budget is checked at every search node. The trail here is the stack of chosen rows, givens included.
+	 * @see Engine#solve(Puzzle, SolveBudget, CancellationToken)
+	 */
+	public SolveStatus solve(Puzzle puzzle, SolveBudget budget, CancellationToken token) {
+		SolveBudget.Meter meter = budget.start(token);
+		Matrix matrix = new Matrix(puzzle);
+		if (!matrix.coverGivens() || !matrix.search(meter)) {
+			return meter.status(false);
+		}
+
+		// Write the chosen rows back onto the board
+		int size = puzzle.geometry().horz();
+		for (int depth = 0; depth < matrix.solutionSize; ++depth) {
+			int choice = matrix.rowOf[matrix.solution[depth]];
+			int cell = choice / size;
+			int ii = cell / size;
+			int jj = cell % size;
+			if (puzzle.isEmpty(ii, jj)) {
+				puzzle.updateSquare(ii, jj, choice % size);
+			}
+		}
+		return meter.status(puzzle.isSolved());
+	}
+
+	/**
+	 * Count exact covers, leaving the puzzle alone.
+	 */
+	public int countSolutions(Puzzle puzzle, int limit) {
+		return countSolutions(puzzle, limit, SolveBudget.UNLIMITED, CancellationToken.NONE);
+	}
+
+	/**
+	 * The budget is checked at every search node, as in solve.
+	 * @see Engine#countSolutions(Puzzle, int, SolveBudget, CancellationToken)
+	 */
+	public int countSolutions(Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Counting to " + limit + " is no count at all");
+		}
+		SolveBudget.Meter meter = budget.start(token);
+		Matrix matrix = new Matrix(puzzle);
+		if (!matrix.coverGivens()) {
+			return 0;
+		}
+		int found = matrix.countCovers(limit, meter);
+		return (found >= limit || meter.status(false) == SolveStatus.UNSOLVED) ? found : -1;
+	}
+
+	/**
+	 * The exact cover matrix of one puzzle. Node 0 is the root, nodes 1..columns are the column headers,
+	 * and the rest are row nodes, four to a row.
+	 */
+	private static final class Matrix {
+		private final int size;
+		private final int columns;
+
+		private final int[] left;
+		private final int[] right;
+		private final int[] up;
+		private final int[] down;
+		private final int[] column;
+		/** Row id of each node: cell * size + symbol */
+		private final int[] rowOf;
+		/** Live node count of each column header */
+		private final int[] count;
+		/** First node of every given's row, to be covered before searching */
+		private final int[] givens;
+		private int givenCount = 0;
+
+		private final int[] solution;
+		private int solutionSize = 0;
+
+		private int nodes;
+
+		Matrix(Puzzle puzzle) {
+			SudokuGeometry geometry = puzzle.geometry();
+			Candidates possibles = puzzle.possibles();
+			size = geometry.horz();
+			int cells = size * size;
+			columns = 4 * cells;
+
+			// Only the rows still possible on the board are worth building
+			int rows = 0;
+			for (int ii = 0; ii < size; ++ii) {
+				for (int jj = 0; jj < size; ++jj) {
+					rows += puzzle.isEmpty(ii, jj) ? possibles.size(ii, jj) : 1;
+				}
+			}
+
+			int capacity = 1 + columns + 4 * rows;
+			left = new int[capacity];
+			right = new int[capacity];
+			up = new int[capacity];
+			down = new int[capacity];
+			column = new int[capacity];
+			rowOf = new int[capacity];
+			count = new int[1 + columns];
+			givens = new int[cells];
+			solution = new int[cells];
+
+			// Root and column headers in one circular list
+			for (int col = 0; col <= columns; ++col) {
+				left[col] = (col == 0) ? columns : col - 1;
+				right[col] = (col == columns) ? 0 : col + 1;
+				up[col] = col;
+				down[col] = col;
+				column[col] = col;
+			}
+			nodes = columns + 1;
+
+			for (int ii = 0; ii < size; ++ii) {
+				for (int jj = 0; jj < size; ++jj) {
+					int cell = ii * size + jj;
+					int square = geometry.inWhichSquare(ii, jj);
+					if (puzzle.isEmpty(ii, jj)) {
+						for (int word = 0; word < possibles.words(); ++word) {
+							long mask = possibles.word(cell, word);
+							while (mask != 0) {
+								addRow(cell, ii, jj, square, word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(mask));
+								mask &= mask - 1;
+							}
+						}
+					} else {
+						givens[givenCount++] = addRow(cell, ii, jj, square, puzzle.symbolAt(cell));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Append one (cell, symbol) row.
+		 * @return its first node
+		 */
+		private int addRow(int cell, int ii, int jj, int square, int symbol) {
+			int cells = size * size;
+			int first = nodes;
+			link(first, 1 + cell, cell * size + symbol);
+			link(first + 1, 1 + cells + ii * size + symbol, cell * size + symbol);
+			link(first + 2, 1 + 2 * cells + jj * size + symbol, cell * size + symbol);
+			link(first + 3, 1 + 3 * cells + square * size + symbol, cell * size + symbol);
+			for (int node = first; node < first + 4; ++node) {
+				left[node] = (node == first) ? first + 3 : node - 1;
+				right[node] = (node == first + 3) ? first : node + 1;
+			}
+			nodes += 4;
+			return first;
+		}
+
+		/**
+		 * Hang a node at the bottom of a column.
+		 */
+		private void link(int node, int col, int row) {
+			column[node] = col;
+			rowOf[node] = row;
+			up[node] = up[col];
+			down[node] = col;
+			down[up[col]] = node;
+			up[col] = node;
+			count[col] += 1;
+		}
+
+		private void cover(int col) {
+			right[left[col]] = right[col];
+			left[right[col]] = left[col];
+			for (int row = down[col]; row != col; row = down[row]) {
+				for (int node = right[row]; node != row; node = right[node]) {
+					down[up[node]] = down[node];
+					up[down[node]] = up[node];
+					count[column[node]] -= 1;
+				}
+			}
+		}
+
+		private void uncover(int col) {
+			for (int row = up[col]; row != col; row = up[row]) {
+				for (int node = left[row]; node != row; node = left[node]) {
+					count[column[node]] += 1;
+					down[up[node]] = node;
+					up[down[node]] = node;
+				}
+			}
+			right[left[col]] = col;
+			left[right[col]] = col;
+		}
+
+		/**
+		 * Select every given's row up front.
+		 * @return false if two givens fight over a constraint
+		 */
+		boolean coverGivens() {
+			boolean[] covered = new boolean[1 + columns];
+			for (int given = 0; given < givenCount; ++given) {
+				int row = givens[given];
+				int node = row;
+				do {
+					int col = column[node];
+					if (covered[col]) {
+						return false;
+					}
+					covered[col] = true;
+					cover(col);
+					node = right[node];
+				} while (node != row);
+				solution[solutionSize++] = row;
+			}
+			return true;
+		}
+
+		/**
+		 * Algorithm X, branching on the column with the fewest rows left.
+		 * @param meter paid at every node
+		 * @return true once every column is covered
+		 */
+		boolean search(SolveBudget.Meter meter) {
+			if (right[0] == 0) {
+				return true;
+			}
+			if (!meter.node(solutionSize)) {
+				return false;
+			}
+
+			int best = right[0];
+			for (int col = right[best]; col != 0 && count[best] > 1; col = right[col]) {
+				if (count[col] < count[best]) {
+					best = col;
+				}
+			}
+			if (count[best] == 0) {
+				return false;
+			}
+
+			cover(best);
+			for (int row = down[best]; row != best; row = down[row]) {
+				solution[solutionSize++] = row;
+				for (int node = right[row]; node != row; node = right[node]) {
+					cover(column[node]);
+				}
+				if (search(meter)) {
+					return true;
+				}
+				for (int node = left[row]; node != row; node = left[node]) {
+					uncover(column[node]);
+				}
+				solutionSize -= 1;
+			}
+			uncover(best);
+
+			return false;
+		}
+
+		/**
+		 * Algorithm X again, carrying on past the first cover.
+		 * @return covers found, up to limit; a short count once the meter says to give up
+		 */
+		int countCovers(int limit, SolveBudget.Meter meter) {
+			if (right[0] == 0) {
+				return 1;
+			}
+			if (!meter.node(solutionSize)) {
+				return 0;
+			}
+
+			int best = right[0];
+			for (int col = right[best]; col != 0 && count[best] > 1; col = right[col]) {
+				if (count[col] < count[best]) {
+					best = col;
+				}
+			}
+			if (count[best] == 0) {
+				return 0;
+			}
+
+			int found = 0;
+			cover(best);
+			for (int row = down[best]; row != best && found < limit; row = down[row]) {
+				solution[solutionSize++] = row;
+				for (int node = right[row]; node != row; node = right[node]) {
+					cover(column[node]);
+				}
+				found += countCovers(limit - found, meter);
+				for (int node = left[row]; node != row; node = left[node]) {
+					uncover(column[node]);
+				}
+				solutionSize -= 1;
+			}
+			uncover(best);
+
+			return found;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * Something that can fill in a Puzzle. Engines hold no per-puzzle state and are safe to share between threads.
+ */
+public interface Engine {
+
+	/**
+	 * Solve a puzzle in place.
+	 * @param puzzle
+	 * @return true if the puzzle is solved
+	 */
+	boolean solve(Puzzle puzzle);
+
+	/**
+	 * Solve a puzzle in place, giving up when the budget runs out or the token is tripped.
+	 * Either way the puzzle is left as if the search had found nothing.
+	 * @param puzzle
+	 * @param budget limits on this one solve
+	 * @param token checked as the solve goes; CancellationToken.NONE if nobody will cancel
+	 * @return how it ended
+	 */
+	SolveStatus solve(Puzzle puzzle, SolveBudget budget, CancellationToken token);
+
+	/**
+	 * Count the solutions of a puzzle, stopping as soon as there are enough. A limit of 2 tells
+	 * a proper puzzle (exactly one solution) from a broken one.
+	 * @param puzzle left as it was found
+	 * @param limit stop counting here; at least 1
+	 * @return the number of solutions, or limit if there are at least that many
+	 */
+	int countSolutions(Puzzle puzzle, int limit);
+
+	/**
+	 * Count the solutions of a puzzle, giving up when the budget runs out or the token is tripped.
+	 * @param puzzle left as it was found
+	 * @param limit stop counting here; at least 1
+	 * @param budget limits on this one count
+	 * @param token checked as the count goes; CancellationToken.NONE if nobody will cancel
+	 * @return the number of solutions, or limit if there are at least that many; -1 if it gave up first
+	 */
+	int countSolutions(Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token);
+}
@@ -0,0 +1,190 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Draws boards and their candidates as text. Everything that depends only on the geometry (bars, padded
+ * symbols, cell walls) is worked out once up front, and each board is built in one reusable buffer and
+ * handed over in a single append, so a renderer can redraw a board as often as it likes without chatting
+ * to the console a character at a time.
+ * <p>
+ * A renderer keeps its buffer between calls, so give each thread its own.
+ */
+public class GridRenderer {
+
+	private final SudokuGeometry geometry;
+
+	/** Each symbol padded to the cell width, and the blank */
+	private final String[] cells;
+	private final String blank;
+
+	/** Wall in front of each column */
+	private final String[] walls;
+	private final String lastWall;
+
+	private final String thinBar;
+	private final String thickBar;
+
+	/** Extra bar characters for the walls and padding */
+	private final int barPadding;
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	public GridRenderer(SudokuGeometry geometry) {
+		this.geometry = geometry;
+		int size = geometry.vert();
+		int longest = geometry.maxSymbolLength();
+
+		cells = new String[geometry.horz()];
+		for (int index = 0; index < cells.length; ++index) {
+			String symbol = geometry.symbol(index);
+			cells[index] = (longest == 1 || longest == symbol.length()) ? symbol : symbol + " ";
+		}
+		blank = (longest == 1) ? " " : "  ";
+
+		walls = new String[size];
+		for (int jj = 0; jj < size; ++jj) {
+			walls[jj] = (jj % geometry.columnsInSquare() > 0) ? "|" : "||";
+		}
+		lastWall = (size % geometry.columnsInSquare() > 0) ? "|" : "||";
+
+		barPadding = size / geometry.rowsInSquare();
+		thinBar = bar('-', size * 4 + barPadding);
+		thickBar = bar('=', size * 4 + barPadding);
+	}
+
+	public SudokuGeometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * Draw the grid of a puzzle.
+	 * @param puzzle
+	 * @return the drawing; only good until the next call
+	 */
+	public CharSequence grid(Puzzle puzzle) {
+		StringBuilder out = buffer;
+		out.setLength(0);
+		out.append("\nsudoku grid, current state\n");
+
+		int vert = geometry.vert();
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			out.append((ii % geometry.rowsInSquare() > 0) ? thinBar : thickBar).append('\n');
+			for (int jj = 0; jj < vert; ++jj) {
+				int index = puzzle.symbolAt(ii * vert + jj);
+				out.append(walls[jj]).append(' ').append((index < 0) ? blank : cells[index]).append(' ');
+			}
+			out.append(lastWall).append('\n');
+		}
+		out.append(thickBar).append('\n');
+		return out;
+	}
+
+	/**
+	 * Draw the matrix of possible moves of a puzzle.
+	 * @param puzzle
+	 * @return the drawing; only good until the next call
+	 */
+	public CharSequence possibles(Puzzle puzzle) {
+		Candidates possibles = puzzle.possibles();
+		StringBuilder out = buffer;
+		out.setLength(0);
+		out.append("\npossible values, current state\n");
+
+		// The bars stretch with the fullest cell of each column
+		int barLength = 0;
+		for (int jj = 0; jj < possibles.vert(); ++jj) {
+			int maxBar = 0;
+			for (int ii = 0; ii < possibles.horz(); ++ii) {
+				maxBar = Math.max(maxBar, possibles.size(ii, jj));
+			}
+			barLength += maxBar;
+		}
+		barLength = barLength * 3 + barPadding;
+
+		int vert = possibles.vert();
+		for (int ii = 0; ii < possibles.horz(); ++ii) {
+			appendBar(out, (ii % geometry.rowsInSquare() > 0) ? '-' : '=', barLength);
+			for (int jj = 0; jj < vert; ++jj) {
+				out.append(walls[jj]).append(' ');
+				appendCandidates(out, possibles, ii * vert + jj);
+				out.append(' ');
+			}
+			out.append(lastWall).append('\n');
+		}
+		appendBar(out, '=', barLength);
+		return out;
+	}
+
+	/**
+	 * Draw the grid of a puzzle to a console, file or socket, flushing it once the board is out.
+	 * @param puzzle
+	 * @param target
+	 * @throws IOException
+	 */
+	public void writeGrid(Puzzle puzzle, Appendable target) throws IOException {
+		write(grid(puzzle), target);
+	}
+
+	/**
+	 * Draw the possible moves of a puzzle to a console, file or socket, flushing them once the board is out.
+	 * @param puzzle
+	 * @param target
+	 * @throws IOException
+	 */
+	public void writePossibles(Puzzle puzzle, Appendable target) throws IOException {
+		write(possibles(puzzle), target);
+	}
+
+	private static void write(CharSequence drawing, Appendable target) throws IOException {
+		target.append(drawing);
+		if (target instanceof Flushable) {
+			((Flushable) target).flush();
+		}
+	}
+
+	/**
+	 * The candidates of a cell with beginning and ending brackets and nice commas.
+	 */
+	private void appendCandidates(StringBuilder out, Candidates possibles, int cell) {
+		out.append('[');
+		boolean first = true;
+		for (int word = 0; word < possibles.words(); ++word) {
+			long bits = possibles.word(cell, word);
+			while (bits != 0) {
+				if (!first) {
+					out.append(", ");
+				}
+				out.append(geometry.symbol(word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(bits)));
+				bits &= bits - 1;
+				first = false;
+			}
+		}
+		out.append(']');
+	}
+
+	private static void appendBar(StringBuilder out, char line, int length) {
+		for (int nn = 0; nn < length; ++nn) {
+			out.append(line);
+		}
+		out.append('\n');
+	}
+
+	private static String bar(char line, int length) {
+		char[] bar = new char[length];
+		Arrays.fill(bar, line);
+		return new String(bar);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * Hidden pairs, triples and quads: when k symbols of a unit can only go in the same k cells between them,
+ * those cells are spoken for, so they can't take any other symbol.
+ */
+public class HiddenSubsetTechnique implements Technique {
+
+	private static final String[] NAMES = { "", "", "hidden pair", "hidden triple", "hidden quad" };
+
+	private final int k;
+
+	/**
+	 * @param k subset size, 2 to 4
+	 */
+	public HiddenSubsetTechnique(int k) {
+		if (k < 2 || k >= NAMES.length) {
+			throw new IllegalArgumentException("Subsets come in 2 to " + (NAMES.length - 1) + ", not " + k);
+		}
+		this.k = k;
+	}
+
+	public String name() {
+		return NAMES[k];
+	}
+
+	public boolean apply(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		boolean struck = false;
+		long[] places = new long[size];
+		int[] members = new int[size];
+
+		for (int unit = 0; unit < geometry.unitCount(); ++unit) {
+			// Where in the unit each symbol can go, as a mask of positions
+			for (int symbol = 0; symbol < size; ++symbol) {
+				places[symbol] = 0L;
+			}
+			for (int nth = 0; nth < size; ++nth) {
+				long mask = puzzle.possibles().mask(geometry.unitCell(unit, nth));
+				while (mask != 0) {
+					places[Long.numberOfTrailingZeros(mask)] |= 1L << nth;
+					mask &= mask - 1;
+				}
+			}
+
+			// Only symbols with 2..k places can be in a hidden subset of k
+			int count = 0;
+			for (int symbol = 0; symbol < size; ++symbol) {
+				int found = Long.bitCount(places[symbol]);
+				if (found >= 2 && found <= k) {
+					members[count++] = symbol;
+				}
+			}
+			if (count >= k) {
+				struck |= find(puzzle, unit, places, members, count, 0, 0, 0L, 0L);
+			}
+		}
+		return struck;
+	}
+
+	/**
+	 * Try every way of adding symbols to a subset, striking the first one that pays off.
+	 * @param symbols the subset so far, as a candidate mask
+	 * @param cells the union of its places in the unit
+	 * @return true if anything was struck
+	 */
+	private boolean find(Puzzle puzzle, int unit, long[] places, int[] members, int count, int from, int chosen,
+			long symbols, long cells) {
+		SudokuGeometry geometry = puzzle.geometry();
+		if (chosen == k) {
+			boolean struck = false;
+			for (int nth = 0; nth < geometry.horz(); ++nth) {
+				int cell = geometry.unitCell(unit, nth);
+				if ((cells & (1L << nth)) != 0 && (puzzle.possibles().mask(cell) & ~symbols) != 0) {
+					puzzle.removePossibles(cell, ~symbols);
+					struck = true;
+				}
+			}
+			return struck;
+		}
+
+		for (int next = from; next < count; ++next) {
+			long union = cells | places[members[next]];
+			if (Long.bitCount(union) <= k
+					&& find(puzzle, unit, places, members, count, next + 1, chosen + 1, symbols | (1L << members[next]), union)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * One puzzle per line, one character per cell, row by row: the common 81-character format.
+ * Any NxN length works; the geometry comes from SudokuGeometry.forSize. Blanks are '.' or '0'.
+ */
+public final class LineFormat {
+
+	/** Alphabet index of every ASCII character in DEFAULT_SYMBOLS, -1 for the rest */
+	private static final byte[] INDEX = new byte[128];
+	static {
+		Arrays.fill(INDEX, (byte) -1);
+		for (int index = 0; index < SudokuGeometry.DEFAULT_SYMBOLS.length(); ++index) {
+			INDEX[SudokuGeometry.DEFAULT_SYMBOLS.charAt(index)] = (byte) index;
+		}
+	}
+
+	private LineFormat() {
+	}
+
+	/**
+	 * @return true for characters that mark a blank cell
+	 */
+	public static boolean isBlank(char symbol) {
+		return symbol == '.' || symbol == '0';
+	}
+
+	/**
+	 * Read one puzzle line.
+	 * @param line any CharSequence will do, so lines needn't become Strings first
+	 * @return the puzzle
+	 * @throws IllegalArgumentException if the line isn't a square number of cells or holds a stranger
+	 */
+	public static Puzzle parse(CharSequence line) {
+		int start = 0;
+		int end = line.length();
+		while (start < end && line.charAt(start) <= ' ') {
+			++start;
+		}
+		while (end > start && line.charAt(end - 1) <= ' ') {
+			--end;
+		}
+		int cells = end - start;
+		int size = (int) Math.round(Math.sqrt(cells));
+		if (size == 0 || size * size != cells) {
+			throw new IllegalArgumentException(String.format("%d characters don't make a square board", cells));
+		}
+		if (size > SudokuGeometry.DEFAULT_SYMBOLS.length()) {
+			throw new IllegalArgumentException(String.format("A %dx%d board has too many symbols for one character a cell", size, size));
+		}
+
+		// forSize boards use the first N of DEFAULT_SYMBOLS, so a character's place there is its index
+		SudokuGeometry geometry = SudokuGeometry.forSize(size);
+		short[] givens = new short[cells];
+		for (int cell = 0; cell < cells; ++cell) {
+			char symbol = line.charAt(start + cell);
+			if (!isBlank(symbol)) {
+				int index = (symbol < INDEX.length) ? INDEX[symbol] : -1;
+				if (index < 0 || index >= size) {
+					throw new IllegalArgumentException(String.format("grid[%d][%d] = \"%c\" is not one of %s",
+							cell / size + 1, cell % size + 1, symbol, geometry.numbers()));
+				}
+				givens[cell] = (short) (index + 1);
+			}
+		}
+		return new Puzzle(geometry, givens);
+	}
+
+	/**
+	 * Write a puzzle as one line, blanks as '.'.
+	 * @param puzzle
+	 * @return the line, without a line break
+	 * @throws IllegalArgumentException if a symbol is longer than one character
+	 */
+	public static String format(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		if (geometry.maxSymbolLength() > 1) {
+			throw new IllegalArgumentException("Only one-character symbols fit in a line");
+		}
+		StringBuilder line = new StringBuilder(geometry.horz() * geometry.vert());
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < geometry.vert(); ++jj) {
+				line.append(puzzle.isEmpty(ii, jj) ? "." : puzzle.get(ii, jj));
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Write a puzzle as one line of symbols separated by spaces, blanks as '.', for alphabets whose
+	 * symbols don't all fit in one character. Not something parse can read back.
+	 * @param puzzle
+	 * @return the line, without a line break
+	 */
+	public static String formatSpaced(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		StringBuilder line = new StringBuilder(geometry.horz() * geometry.vert() * (geometry.maxSymbolLength() + 1));
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < geometry.vert(); ++jj) {
+				if (line.length() > 0) {
+					line.append(' ');
+				}
+				line.append(puzzle.isEmpty(ii, jj) ? "." : puzzle.get(ii, jj));
+			}
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a file of one-line puzzles through memory-mapped windows, for corpora too big to want a String
+ * per line. Each line is handed out as a CharSequence view over the mapped bytes, good until the next
+ * call to next(), which LineFormat.parse turns straight into a puzzle.
+ * Lines are trimmed, and blank lines and # comments are skipped, as in BatchSolver.
+ * Puzzle files are ASCII; anything else only ever comes out again through line().toString().
+ */
+public class MappedPuzzleReader implements Closeable {
+
+	/** Bytes mapped at a time; big enough that remapping is rare, small enough to fit any address space */
+	static final int WINDOW = 1 << 26;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long length;
+	private final int windowSize;
+
+	private MappedByteBuffer window;
+	private long windowStart = 0L;
+	private int position = 0;
+
+	private final Line line = new Line();
+
+	/**
+	 * @param file a file of one-line puzzles
+	 * @throws IOException
+	 */
+	public MappedPuzzleReader(File file) throws IOException {
+		this(file, WINDOW);
+	}
+
+	/**
+	 * @param file
+	 * @param windowSize bytes mapped at a time; must hold the longest line
+	 * @throws IOException
+	 */
+	MappedPuzzleReader(File file, int windowSize) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.length = channel.size();
+		this.windowSize = windowSize;
+		map(0L);
+	}
+
+	/**
+	 * Move on to the next puzzle line.
+	 * @return false at the end of the file
+	 * @throws IOException if a line won't fit in a window
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			int limit = window.limit();
+			if (position >= limit) {
+				if (windowStart + limit >= length) {
+					return false;
+				}
+				map(windowStart + position);
+				continue;
+			}
+
+			int end = position;
+			while (end < limit && window.get(end) != '\n') {
+				++end;
+			}
+			if (end == limit && windowStart + limit < length) {
+				// The line runs off the window; slide the window up to it
+				if (position == 0) {
+					throw new IOException(String.format("Line at byte %d is longer than %d bytes", windowStart, windowSize));
+				}
+				map(windowStart + position);
+				continue;
+			}
+
+			int start = position;
+			position = end + 1;
+			while (start < end && window.get(start) <= ' ') {
+				++start;
+			}
+			while (end > start && window.get(end - 1) <= ' ') {
+				--end;
+			}
+			if (end > start && window.get(start) != '#') {
+				line.start = start;
+				line.end = end;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return the current line, trimmed; a view over the mapped bytes that next() reuses, so call
+	 *         toString() on it to keep it
+	 */
+	public CharSequence line() {
+		return line;
+	}
+
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+
+	private void map(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, length - start));
+		position = 0;
+	}
+
+	/**
+	 * The current line, one char per byte.
+	 */
+	private final class Line implements CharSequence {
+		int start;
+		int end;
+
+		public int length() {
+			return end - start;
+		}
+
+		public char charAt(int index) {
+			return (char) (window.get(start + index) & 0xff);
+		}
+
+		public CharSequence subSequence(int from, int to) {
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[end - start];
+			for (int ii = 0; ii < bytes.length; ++ii) {
+				bytes[ii] = window.get(start + ii);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -33,101 +33,51 @@
 
 package com.masyukun.puzzle.sudoku;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
-import java.util.Stack;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
 
-public class MxNSudoku {
-
-  // Default values
-	public static int HORZ = 9;
-	public static int VERT = 9;
-	public static int ROWS_IN_SQUARE = 3;
-	public static int COLUMNS_IN_SQUARE = 3;
-	public static int NUM_COL_SQUARES = 3;
-	public static int NUM_ROW_SQUARES = 3;
-	public static String EMPTY = "";
-	
-	public static ArrayList<String> NUMBERS 
-		= new ArrayList<String>(Arrays.asList("1","2","3","4","5","6","7","8","9"));
 
-	public static int MAX_SYMBOL_LENGTH = 1;
-	
-	/**
-	 * Produce an empty grid, initialized with EMPTY Strings.
-	 * @param horz number of columns
-	 * @param vert number of rows
-	 * @return the grid
-	 */
-	private static String[][] gridFactory(int horz, int vert) {
-		// Create the grid
-		String grid[][] = new String[horz][vert];
-		
-		// Fill the grid with blank strings
-		for (int ii = 0; ii < horz; ++ii) {
-			for (int jj = 0; jj < vert; ++jj) {
-				grid[ii][jj] = EMPTY;
-			}
-		}
+public class MxNSudoku {
 
-		return grid;
-	}
-	
 	/**
 	 * Initialize the Sudoku grid with a game. 0 is a blank board, as are unallocated game numbers.
 	 * Numbers do not relate to difficulty; they are random and follow no rhyme or reason.
 	 * @param gameNum
 	 * @return
 	 */
-	static String[][] initGrid(Integer gameNum) {
+	static Puzzle initGrid(Integer gameNum) {
 
 		// Environment changes
+		SudokuGeometry geometry;
 		switch(gameNum) {
 			case 12:
-				HORZ = 12;
-				VERT = 12;
-				ROWS_IN_SQUARE = 3;
-				COLUMNS_IN_SQUARE = 4;
-				NUM_COL_SQUARES = 3;
-				NUM_ROW_SQUARES = 4;
-				NUMBERS.clear();
-				NUMBERS = new ArrayList<String>(Arrays.asList("1","2","3","4","5","6","7","8","9","A","B","C"));
-				MAX_SYMBOL_LENGTH = 1;
+				geometry = new SudokuGeometry(3, 4, Arrays.asList("1","2","3","4","5","6","7","8","9","A","B","C"));
 				break;
 
 			case 13:
-				HORZ = 12;
-				VERT = 12;
-				ROWS_IN_SQUARE = 3;
-				COLUMNS_IN_SQUARE = 4;
-				NUM_COL_SQUARES = 3;
-				NUM_ROW_SQUARES = 4;
-				NUMBERS.clear();
-				NUMBERS = new ArrayList<String>(Arrays.asList("A","Ab","B","Bb","C","C#","D","E","Eb","F","F#","G"));
-				MAX_SYMBOL_LENGTH = 2;
+				geometry = new SudokuGeometry(3, 4, Arrays.asList("A","Ab","B","Bb","C","C#","D","E","Eb","F","F#","G"));
 				break;
 
 			default:
-				HORZ = 9;
-				VERT = 9;
-				ROWS_IN_SQUARE = 3;
-				COLUMNS_IN_SQUARE = 3;
-				NUM_COL_SQUARES = 3;
-				NUM_ROW_SQUARES = 3;
-				NUMBERS.clear();
-				NUMBERS = new ArrayList<String>(Arrays.asList("1","2","3","4","5","6","7","8","9"));
-				MAX_SYMBOL_LENGTH = 1;
+				geometry = SudokuGeometry.DEFAULT;
 				break;
 		}
 		
 		// Create the grid
-		String grid[][] = gridFactory(HORZ, VERT);
+		String grid[][] = Puzzle.gridFactory(geometry.horz(), geometry.vert());
 		
 		
 		// Assign the symbols to the grid
@@ -235,675 +185,574 @@ public class MxNSudoku {
 				break;
 		}
 	
-		return grid;
+		return new Puzzle(geometry, grid);
 	}
 	
 	/**
-	 * Initialize an MxN matrix of possible moves of the same order as the Sudoku grid with blank ArrayLists.
-	 * @param grid
-	 * @return
+	 * Print the Sudoku grid of a puzzle.
+	 * @param puzzle
 	 */
-	static ArrayList<String>[][] initPossibles(String[][] grid) {
-
-		// Create the possibles grid
-		@SuppressWarnings("unchecked")
-		ArrayList<String>[][] possibles = new ArrayList[HORZ][VERT];
-		
-		// Fill the grid with blank ArrayLists
-		for (int ii = 0; ii < HORZ; ++ii) {
-			for (int jj = 0; jj < VERT; ++jj) {
-				possibles[ii][jj] = new ArrayList<String>();
-			}
-		}
-
-		
-		return possibles;
-	}
-	
-	/**
-	 * Print the Sudoku grid, assuming 9x9 board.
-	 * @param grid
-	 */
-	static void printGrid(String[][] grid) {
-		printGrid(grid, ROWS_IN_SQUARE, COLUMNS_IN_SQUARE);
-	}
-	
-	/**
-	 * Print the Sudoku grid
-	 * @param grid String[][] representation of the Sudoku board
-	 * @param horzSquare How many rows belong to a square
-	 * @param vertSquare How many columns belong to a square
-	 */
-	static void printGrid(String[][] grid, int horzSquare, int vertSquare) {
-		
-		System.out.println("\nsudoku grid, current state");
-		
-		// For each row
-		for (int ii = 0; ii < grid.length; ++ii) {
-
-			// Print the horizontal bars
-			for (int hCount = 0; 
-					hCount < (grid[ii].length); 
-					++hCount) {
-				if (ii % horzSquare > 0) { 
-					System.out.print("----");
-					if (0 == hCount) {
-						for (int barPadding = 0; barPadding < (grid[ii].length / horzSquare); ++barPadding) {
-							System.out.print("-");
-						}
-					}
-				} else {
-					System.out.print("====");
-					if (0 == hCount) {
-						for (int barPadding = 0; barPadding < (grid[ii].length / horzSquare); ++barPadding) {
-							System.out.print("=");
-						}
-					}
-				}
-			}
-			
-			// Print the numbers
-			System.out.print("\n");
-			for (int jj = 0; jj < grid[ii].length; ++jj) {
-				System.out.printf("%s %s ", 
-						(jj % vertSquare > 0) ? "|" : "||",
-						(grid[ii][jj].equals(EMPTY)) 
-							? ((MAX_SYMBOL_LENGTH == 1) ? " " : "  ") 
-							: ((MAX_SYMBOL_LENGTH == 1 || (MAX_SYMBOL_LENGTH == grid[ii][jj].length())) 
-									? grid[ii][jj] 
-									: grid[ii][jj] + " ") );
- 			}
-			System.out.printf("%s\n", (grid[grid.length - 1].length % vertSquare > 0) ? "|" : "||");
-		}
-
-		// Print the last line
-		for (int hCount = 0; 
-				hCount < (grid[grid.length - 1].length); 
-				++hCount) {
-			System.out.print("====");
-		}
-		for (int barPadding = 0; barPadding < (grid[grid.length - 1].length / horzSquare); ++barPadding) {
-			System.out.print("=");
-		}
-		System.out.printf("\n");
+	static void printGrid(Puzzle puzzle) {
+		System.out.print(new GridRenderer(puzzle.geometry()).grid(puzzle));
 	}
 
 	/**
-	 * Print the matrix of possible moves, assuming 9x9 board.
-	 * @param possibles
+	 * Print the matrix of possible moves of a puzzle.
+	 * @param puzzle
 	 */
-	static void printGrid(@SuppressWarnings("rawtypes") ArrayList[][] possibles) {
-		printGrid(possibles, ROWS_IN_SQUARE, COLUMNS_IN_SQUARE);
+	static void printPossibles(Puzzle puzzle) {
+		System.out.print(new GridRenderer(puzzle.geometry()).possibles(puzzle));
 	}
 	
+
 	/**
-	 * Print the matrix of possible moves.
-	 * @param possibles 
-	 * @param horzSquare How many rows belong to a square
-	 * @param vertSquare How many columns belong to a square
+	 * Read in a puzzle file, in whichever of the PuzzleFormats it turns out to be. A file of many
+	 * puzzles gives up its first one.
+	 * @param filename
+	 * @return a puzzle. Null if something terrible happened.
 	 */
-	@SuppressWarnings("unchecked")
-	static void printGrid(@SuppressWarnings("rawtypes") ArrayList[][] possibles, int horzSquare, int vertSquare) {
-		System.out.println("\npossible values, current state");
-
-		// Tally the collection length for each column
-		int barLength = 0;
-		ArrayList<Integer> columnLengths = new ArrayList<Integer>();
-
-		for (int jj = 0; jj < possibles.length; ++jj) {
-			int maxBar = 0;
-
-			for (int ii = 0; ii < possibles.length; ++ii) {
-				if (possibles[ii][jj].size() > maxBar) {
-					maxBar = possibles[ii][jj].size();
-				}
+	static Puzzle readPuzzleFile(String filename) {
+		PuzzleFileReader in = null;
+		try {
+			in = PuzzleFormats.open(new File(filename));
+			if (null == in) {
+				System.out.println(String.format("\nThis version of mxnsudoku doesn't know how to read \"%s\"", filename));
+				System.out.println("It can read: " + formatNames());
+				return null;
 			}
-			
-			columnLengths.add(maxBar);
-			barLength += maxBar; 
-		}
-		
-		// For each row 1:3, 2:6, 3:9, 4:12 [1, 2, 3, 4]
-		for (int ii = 0; ii < possibles.length; ++ii) {
-			
-			// Print the horizontal bars
-			if (ii % horzSquare > 0) { 
-				// Print main line length
-				for (int barCount = 0; barCount < barLength*3; ++barCount) {
-					System.out.print("-");
-				}
-				// Add lines for cell padding and vertical cell wall
-				for (int barPadding = 0; barPadding < (possibles[ii].length / horzSquare); ++barPadding) {
-					System.out.print("-");
-				}
-			} else {
-				// Print main line length
-				for (int barCount = 0; barCount < barLength*3; ++barCount) {
-					System.out.print("=");
-				}
-				
-				// Add lines for cell padding and vertical cell wall
-				for (int barPadding = 0; barPadding < (possibles[ii].length / horzSquare); ++barPadding) {
-					System.out.print("=");
-				}
+			if (!in.hasNext()) {
+				System.out.println(String.format("\nThere's no puzzle in \"%s\".", filename));
+				return null;
 			}
+			return in.next();
 			
-			
-			// Print the numbers
-			System.out.print("\n");
-			for (int jj = 0; jj < possibles[ii].length; ++jj) {
-				System.out.printf("%s ", (jj % vertSquare > 0) ? "|" : "||");
-				printArray(possibles[ii][jj]);
-				System.out.print(" ");
- 			}
-			System.out.printf("%s\n", (possibles[possibles.length - 1].length % vertSquare > 0) ? "|" : "||");
-		}
-
-		// Print the last line
-		for (int barCount = 0; barCount < barLength*3; ++barCount) {
-			System.out.print("=");
-		}
-		for (int barPadding = 0; barPadding < (possibles[possibles.length - 1].length / horzSquare); ++barPadding) {
-			System.out.print("=");
+		} catch (FileNotFoundException e) {
+			System.out.println(String.format("\n\nThe file \"%s\" does not exist.\n", filename));
+			e.printStackTrace();
+		} catch (IOException e) {
+			System.out.println(String.format("\n\nSomething wonky happened while trying to read the file \"%s\"\n", filename));
+			e.printStackTrace();
+		} catch (UncheckedIOException e) {
+			System.out.println(String.format("\n\nSomething wonky happened while trying to read the file \"%s\"\n", filename));
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			System.out.println(String.format("\nThe puzzle in \"%s\" is messed up: %s", filename, e.getMessage()));
+		} finally {
+			try {
+				if (null != in) in.close();
+			} catch (IOException e) {
+				// Nothing left to do about it
+			}
 		}
-		System.out.printf("\n");
-
+		return null;
 	}
-
 	
 	/**
-	 * Get the nth vertical row of values from the Sudoku grid.
-	 * @param grid
-	 * @param index
-	 * @return
+	 * @return the formats we can read, like "1) SudoCue .sdk 2) ..."
 	 */
-	static ArrayList<String> getNthVertical(String[][] grid, Integer index) {
-		ArrayList<String> vertresult = new ArrayList<String>();
-		
-		for (int ii = 0; ii < grid.length; ++ii) {
-			if ( grid[ii][index] != EMPTY ) {
-				vertresult.add(grid[ii][index]);
-			} 
+	private static String formatNames() {
+		StringBuilder names = new StringBuilder();
+		int nth = 0;
+		for (PuzzleFormat format : PuzzleFormats.formats()) {
+			names.append((nth > 0) ? " " : "").append(++nth).append(") ").append(format.name());
 		}
-		
-		return vertresult;
+		return names.toString();
 	}
 	
 	/**
-	 * Get the nth horizontal row of values from the Sudoku grid.
-	 * @param grid
-	 * @param index
-	 * @return
+	 * @param name
+	 * @return true if engineFor knows an engine by that name
 	 */
-	static ArrayList<String> getNthHorizontal(String[][] grid, Integer index) {
-		ArrayList<String> horzresult = new ArrayList<String>();
-		
-		for (int ii = 0; ii < grid[0].length; ++ii) {
-			if ( grid[index][ii] != EMPTY ) {
-				horzresult.add(grid[index][ii]);
-			}
-		}
-		
-		return horzresult;
+	static boolean isEngine(String name) {
+		return name.equals("propagation") || name.equals("parallel") || name.equals("dlx");
 	}
 	
 	/**
-	 * Default for a 9x9 grid
-	 * @param grid
-	 * @param index
-	 * @return
+	 * Look up a solving engine by its command-line name.
+	 * @param name "propagation", "parallel" or "dlx"
+	 * @param listener hears the engine's moves, if it knows how to tell
+	 * @return the engine, or null if there's no such thing
 	 */
-	static ArrayList<String> getNthSquare(String[][] grid, Integer index) {
-		return getNthSquare(grid, index, NUM_ROW_SQUARES, NUM_COL_SQUARES, ROWS_IN_SQUARE, COLUMNS_IN_SQUARE);
+	static Engine engineFor(String name, SolveListener listener) {
+		if (name.equals("propagation")) {
+			return new Solver(listener);
+		} else if (name.equals("parallel")) {
+			// Threads narrating over each other would be no help, but counting and tracing are fine
+			return new ParallelSolver(new Solver((listener instanceof ConsoleListener) ? SolveListener.NONE : listener));
+		} else if (name.equals("dlx")) {
+			return new DancingLinks();
+		}
+		return null;
 	}
 	
 	/**
-	 * Get Nth square of an MxN Sudoku grid. Assumes 3x3 squares on board.
-	 * @param grid
-	 * @param index
-	 * @param horzSquare How many rows belong to a square
-	 * @param vertSquare How many columns belong to a square
-	 * @param numRows Number of rows of squares are in the grid
-	 * @param numColumns Number of columns of squares are in the grid
-	 * @return
+	 * Solve a file of one-line puzzles, writing the answers to a file or System.out
+	 * and the tally to System.err.
+	 * @param filename
+	 * @param outFilename null for System.out
+	 * @param engineName
+	 * @param workers number of solving threads
+	 * @param countLimit count solutions up to this many instead of solving; 0 to solve
+	 * @param cacheSize remember this many answers, for repeated puzzles; 0 for no cache
+	 * @param budget limits on each puzzle
+	 * @param withMetrics count what the engine does, for the summary and JMX
+	 * @return false if something terrible happened
 	 */
-	static ArrayList<String> getNthSquare(String[][] grid, Integer index, Integer horzSquare, Integer vertSquare, Integer numRows, Integer numColumns) {
-		ArrayList<String> sqrresult = new ArrayList<String>();
-		boolean doneCopyingSquare = false;
-		
-		// Iterate through the squares
-		Integer squareCounter = 0;
-		for (Integer iibeg = 0, iiend = (numRows-1); iiend < (horzSquare*numRows); iibeg += numRows, iiend += numRows) {
-			for (Integer jjbeg = 0, jjend = (numColumns-1); jjend < (vertSquare*numColumns); jjbeg += numColumns, jjend += numColumns, ++squareCounter) {
+	private static boolean runBatch(String filename, String outFilename, String engineName, int workers, int countLimit,
+			int cacheSize, SolveBudget budget, boolean withMetrics) {
+		// Count what the engine gets up to, for the summary and anyone watching over JMX. Counting reads
+		// the clock around every phase, so it's only done when asked for
+		SolverMetrics metrics = null;
+		if (withMetrics) {
+			metrics = new SolverMetrics();
+			try {
+				metrics.register();
+			} catch (JMException e) {
+				System.out.println(String.format("\nNo JMX for you today: %s", e.getMessage()));
+			}
+		}
+		Engine engine = engineFor(engineName, (null == metrics) ? SolveListener.NONE : metrics);
+		CachingEngine cache = null;
+		if (cacheSize > 0) {
+			engine = cache = new CachingEngine(engine, cacheSize);
+		}
 		
-				// Only process the square we're interested in
-				if (squareCounter != index) {
-					continue;
-				}
-				
-				// Serialize the square
-				for (int ii = iibeg; ii <= iiend; ++ii) {
-					for (int jj = jjbeg; jj <= jjend; ++jj) {
-						if ( grid[ii][jj] != EMPTY ) {
-							sqrresult.add(grid[ii][jj]);
-						}
-					}
+
+		Closeable in = null;
+		Writer out = null;
+		try {
+			// Binary files are spotted by their header, and text files by what's in them. One-line puzzles,
+			// and anything no format owns up to, are read straight off the mapped file
+			File file = new File(filename);
+			BinaryPuzzleReader binary = null;
+			PuzzleFileReader formatted = null;
+			MappedPuzzleReader text = null;
+			if (BinaryPuzzleReader.isBinary(file)) {
+				in = binary = new BinaryPuzzleReader(file);
+			} else {
+				formatted = PuzzleFormats.open(file);
+				if (null != formatted && formatted.format() instanceof SdmFormat) {
+					formatted.close();
+					formatted = null;
 				}
-				
-				doneCopyingSquare = true;
-				break;
+				in = (null != formatted) ? formatted : (text = new MappedPuzzleReader(file));
 			}
+			out = (null == outFilename)
+					? new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"), 1 << 16)
+					: new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFilename), "UTF-8"), 1 << 16);
 			
-			if (doneCopyingSquare) {
-				break;
+			BatchSolver batch = new BatchSolver(engine, workers, metrics, countLimit, budget);
+			BatchSummary summary = (null != binary) ? batch.run(binary, out)
+					: (null != formatted) ? batch.run(formatted, out) : batch.run(text, out);
+			System.err.println(summary);
+			if (null != cache) {
+				System.err.println(cache);
+			}
+			return true;
+			
+		} catch (FileNotFoundException e) {
+			System.out.println(String.format("\n\nThe file \"%s\" does not exist.\n", filename));
+			return false;
+		} catch (IOException e) {
+			System.out.println(String.format("\n\nSomething wonky happened while solving \"%s\"\n", filename));
+			e.printStackTrace();
+			return false;
+		} finally {
+			try {
+				if (null != in) in.close();
+				if (null != out && null != outFilename) out.close();
+			} catch (IOException e) {
+				// Nothing left to do about it
 			}
 		}
-
-		return sqrresult;
-	}
-
-	/**
-	 * Report the square number containing the absolute coordinate.
-	 * Default is 9x9 matrix.
-	 * @param m vertical
-	 * @param n horizontal
-	 * @return square number 0-8
-	 */
-	static Integer inWhichSquare(Integer m, Integer n) {
-		return inWhichSquare(m, n, ROWS_IN_SQUARE, COLUMNS_IN_SQUARE, NUM_ROW_SQUARES, NUM_COL_SQUARES);
 	}
 	
 	/**
-	 * Report the square number containing the absolute coordinate.
-	 * Square are numbered starting with 0 and are indexed from top left, across the columns, then down the rows.
-	 * @param m
-	 * @param n
-	 * @param horzSquare How many rows belong to a square
-	 * @param vertSquare How many columns belong to a square
-	 * @param numRows Number of rows of squares are in the grid
-	 * @param numColumns Number of columns of squares are in the grid
-	 * @return
+	 * Convert a puzzle file in any of the PuzzleFormats to the binary format.
+	 * @param filename
+	 * @param outFilename where the binary file goes
+	 * @param solver solves each puzzle for the solution section; null for no solutions
+	 * @param budget limits on each solve
+	 * @return false if something terrible happened
 	 */
-	static Integer inWhichSquare(Integer m, Integer n, Integer horzSquare, Integer vertSquare, Integer numRows, Integer numColumns) {
-		Integer result = 0;
-		boolean finished = false;
-
+	private static boolean runConvert(String filename, String outFilename, Engine solver, SolveBudget budget) {
+		File file = new File(filename);
+		if (!file.exists()) {
+			System.out.println(String.format("\n\nThe file \"%s\" does not exist.\n", filename));
+			return false;
+		}
 		
-		// Do some figgering
-		for (int ii = 1; ii <= numRows; ++ii) {
-			for (int jj = 1; jj <= numColumns; ++jj) {
-				if (m < (horzSquare*ii)) {
-					if (n < (vertSquare*jj)) {
-						finished = true;
-						break;
-					} else {
-						result += 1;
-					}
-				} else {
-					result += 1;
+		Closeable in = null;
+		try {
+			long started = System.nanoTime();
+			long records;
+			PuzzleFileReader formatted = PuzzleFormats.open(file);
+			if (null != formatted && !(formatted.format() instanceof SdmFormat)) {
+				in = formatted;
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(outFilename), 1 << 16);
+				records = BinaryPuzzleWriter.convert(formatted, out, solver, budget);
+			} else {
+				if (null != formatted) {
+					formatted.close();
 				}
+				MappedPuzzleReader text = new MappedPuzzleReader(file);
+				in = text;
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(outFilename), 1 << 16);
+				records = BinaryPuzzleWriter.convert(text, out, solver, budget);
+			}
+			System.err.println(String.format("%d puzzles converted to \"%s\" in %.3f ms", records, outFilename,
+					(System.nanoTime() - started) / 1e6));
+			return records > 0;
+			
+		} catch (IOException e) {
+			System.out.println(String.format("\n\nSomething wonky happened while converting \"%s\"\n", filename));
+			e.printStackTrace();
+			return false;
+		} finally {
+			try {
+				if (null != in) in.close();
+			} catch (IOException e) {
+				// Nothing left to do about it
 			}
-
-			// Nailed it
-			if (finished) break;
 		}
-					
-		return result;
 	}
 	
-
 	/**
-	 * Update the matrix of possible moves from the Sudoku grid.
-	 * @param grid
-	 * @param possibles
+	 * Make a file of fresh one-line puzzles, writing them to a file or System.out
+	 * and the tally to System.err.
+	 * @param count how many puzzles
+	 * @param size N of an NxN board
+	 * @param seed
+	 * @param clues stop at this many clues; 0 for as few as we can
+	 * @param difficulty null for any
+	 * @param outFilename null for System.out
+	 * @param workers number of generating threads
+	 * @return false if something terrible happened
 	 */
-	static void updatePossibles(String[][] grid, ArrayList<String>[][] possibles) {
-		for (int ii = 0; ii < grid.length; ++ii) {
-			for (int jj = 0; jj < grid[ii].length; ++jj) {
-				// Reset grid
-				possibles[ii][jj].clear();
-				
-				if ( grid[ii][jj].equals(EMPTY) ) {
-					possibles[ii][jj].addAll(NUMBERS);
-					
-					// Remove all the things it CAN'T be
-					possibles[ii][jj].removeAll(getNthHorizontal(grid, ii));
-					possibles[ii][jj].removeAll(getNthVertical(grid, jj));
-					possibles[ii][jj].removeAll(getNthSquare(grid, inWhichSquare(ii, jj)));
-				}
+	private static boolean runGenerator(int count, int size, long seed, int clues, PuzzleGenerator.Difficulty difficulty,
+			String outFilename, int workers) {
+		Writer out = null;
+		try {
+			PuzzleGenerator generator = new PuzzleGenerator(SudokuGeometry.forSize(size));
+			out = (null == outFilename)
+					? new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"), 1 << 16)
+					: new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFilename), "UTF-8"), 1 << 16);
+			
+			long started = System.nanoTime();
+			generator.write(count, seed, clues, difficulty, out, workers);
+			System.err.println(String.format("%d %dx%d puzzles in %.3f ms", count, size, size, (System.nanoTime() - started) / 1e6));
+			return true;
+			
+		} catch (IllegalArgumentException e) {
+			System.out.println(String.format("\n\nCan't make those puzzles: %s\n", e.getMessage()));
+			return false;
+		} catch (IllegalStateException e) {
+			System.out.println(String.format("\n\nGave up making puzzles: %s\n", e.getMessage()));
+			return false;
+		} catch (IOException e) {
+			System.out.println("\n\nSomething wonky happened while writing the puzzles\n");
+			e.printStackTrace();
+			return false;
+		} finally {
+			try {
+				if (null != out && null != outFilename) out.close();
+			} catch (IOException e) {
+				// Nothing left to do about it
 			}
 		}
 	}
 	
-	/**
-	 * Play a move on the Sudoku grid and update the possibles matrix.
-	 * @param grid
-	 * @param horz
-	 * @param vert
-	 * @param symbol
-	 * @param possibles
-	 */
-	@SuppressWarnings("unchecked")
-	static void updateSquare(String[][] grid, int horz, int vert, String symbol, @SuppressWarnings("rawtypes") ArrayList[][] possibles) {
-		
-		// Sanity checking
-		boolean insane = false;
-		if (horz < 0 && horz >= HORZ) {
-			System.out.println("updateSquare: horz ("+horz+") must be between 0 and " + (HORZ-1));
-			insane = true;
-		}
-		if (vert < 0 && vert >= VERT) {
-			System.out.println("updateSquare: vert ("+vert+") must be between 0 and " + (VERT-1));
-			insane = true;
-		}
-		if (!NUMBERS.contains(symbol)) {
-			System.out.println("updateSquare: symbol must be one of these: ");
-			printArray(NUMBERS);
-			insane = true;
-		}
-		if (insane) {
-			return;
-		}
-		
-		// Assign the symbol
-		grid[horz][vert] = symbol;
+	public static void main (String[] args) {
 		
-		// Update the possibles matrix
-		updatePossibles(grid, possibles);
-	}
-	
-	/**
-	 * Prints the contents of an array with beginning and ending brackets and nice commas.
-	 * @param printMe
-	 */
-	static void printArray(ArrayList<String> printMe) {
-
-		System.out.print("[");
-		for (int ii = 0; ii < printMe.size(); ++ii) {
-			if ((ii + 1) != printMe.size()) {
-				System.out.printf("%s, ", printMe.get(ii));
+		Puzzle puzzle = null;
+		String engineName = "propagation";
+		String batchFile = null;
+		String outFile = null;
+		String traceFile = null;
+		String convertFile = null;
+		boolean solveConverted = false;
+		boolean withMetrics = false;
+		boolean quiet = false;
+		int countLimit = 0;
+		int cacheSize = 0;
+		SolveBudget budget = SolveBudget.UNLIMITED;
+		int generate = 0;
+		int size = SudokuGeometry.DEFAULT.horz();
+		long seed = System.nanoTime();
+		int clues = 0;
+		PuzzleGenerator.Difficulty difficulty = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		
+		boolean chideUser = (args.length == 0);
+		
+		
+		for (int arg = 0; arg < args.length && !chideUser; ++arg) {
+			if (args[arg].equals("-e") && arg + 1 < args.length) {
+				// Pick a solving engine
+				engineName = args[++arg];
+				
+				if (!isEngine(engineName)) {
+					System.out.println(String.format("\n Hmmm... I don't know the \"%s\" engine.", engineName));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-f") && arg + 1 < args.length) {
+				// Read a file instead of using a built-in game
+				puzzle = readPuzzleFile(args[++arg]);
+				
+				if (null == puzzle) {
+					// herp derp
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-b") && arg + 1 < args.length) {
+				// A whole file of puzzles, one per line
+				batchFile = args[++arg];
+				
+			} else if (args[arg].equals("-convert") && arg + 1 < args.length) {
+				// Turn a puzzle file into a binary one
+				convertFile = args[++arg];
+				
+			} else if (args[arg].equals("-metrics")) {
+				// Count what the engine does in batch mode, for the summary and JMX
+				withMetrics = true;
+				
+			} else if (args[arg].equals("-solve")) {
+				// Put solutions in the binary file too
+				solveConverted = true;
+				
+			} else if (args[arg].equals("-o") && arg + 1 < args.length) {
+				// Where batch answers go
+				outFile = args[++arg];
+				
+			} else if (args[arg].equals("-c") && arg + 1 < args.length) {
+				// Count solutions instead of just finding one
+				try {
+					countLimit = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					countLimit = 0;
+				}
+				
+				if (countLimit < 1) {
+					System.out.println(String.format("\n Hmmm... I can't count to \"%s\".", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-timeout") && arg + 1 < args.length) {
+				// How long any one puzzle gets
+				try {
+					budget = budget.withTimeout(Long.parseLong(args[++arg]), TimeUnit.MILLISECONDS);
+				} catch(IllegalArgumentException e) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a number of milliseconds.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-nodes") && arg + 1 < args.length) {
+				// How many guesses any one puzzle gets
+				try {
+					budget = budget.withMaxNodes(Long.parseLong(args[++arg]));
+				} catch(IllegalArgumentException e) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a number of search nodes.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-cache") && arg + 1 < args.length) {
+				// Remember answers for repeated puzzles
+				try {
+					cacheSize = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					cacheSize = 0;
+				}
+				
+				if (cacheSize < 1) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a cache size.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-g") && arg + 1 < args.length) {
+				// Make puzzles instead of solving them
+				try {
+					generate = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					generate = 0;
+				}
+				
+				if (generate < 1) {
+					System.out.println(String.format("\n Hmmm... I can't make \"%s\" puzzles.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-size") && arg + 1 < args.length) {
+				// Board size of the puzzles to make
+				try {
+					size = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					size = 0;
+				}
+				
+				if (size < 1 || size > SudokuGeometry.DEFAULT_SYMBOLS.length()) {
+					System.out.println(String.format("\n Hmmm... I can't make a board of size \"%s\".", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-seed") && arg + 1 < args.length) {
+				// Same seed, same puzzles
+				try {
+					seed = Long.parseLong(args[++arg]);
+				} catch(NumberFormatException e) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a seed.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-clues") && arg + 1 < args.length) {
+				// How many clues to leave in
+				try {
+					clues = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					clues = -1;
+				}
+				
+				if (clues < 0) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a number of clues.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-d") && arg + 1 < args.length) {
+				// How hard the puzzles should be
+				try {
+					difficulty = PuzzleGenerator.Difficulty.valueOf(args[++arg].toUpperCase());
+				} catch(IllegalArgumentException e) {
+					System.out.println(String.format("\n Hmmm... I don't know how hard \"%s\" is.", args[arg]));
+					chideUser = true;
+				}
+				
+			} else if (args[arg].equals("-q")) {
+				// Keep the moves to ourselves
+				quiet = true;
+				
+			} else if (args[arg].equals("-trace") && arg + 1 < args.length) {
+				// Write the moves to a JSON lines file instead
+				traceFile = args[++arg];
+				
+			} else if (args[arg].equals("-t") && arg + 1 < args.length) {
+				// How many batch solving threads
+				try {
+					workers = Integer.parseInt(args[++arg]);
+				} catch(NumberFormatException e) {
+					workers = 0;
+				}
+				
+				if (workers < 1) {
+					System.out.println(String.format("\n Hmmm... \"%s\" isn't a number of threads.", args[arg]));
+					chideUser = true;
+				}
+				
 			} else {
-				System.out.printf("%s", printMe.get(ii));
-			}
-		}
-		System.out.print("]");
+				// Init the Sudoku grid
+				try {
+					puzzle = initGrid(Integer.parseInt(args[arg]));
 
-	}
-	
-
-	/**
-	 * Solve the easy ones -- where there's only 1 possibility
-	 * @param grid
-	 * @param poss
-	 * @return true when it solved something
-	 */
-	@SuppressWarnings("rawtypes")
-	static boolean solve(String[][] grid, ArrayList[][] poss) {
-		boolean solvedSomething = false;
-		
-		for (int ii = 0; ii < poss.length; ++ii) {
-			for (int jj = 0; jj < poss[ii].length; ++jj) {
-				if (poss[ii][jj].size() == 1) {
-					// Solved it! Check out my hook while updateSquare resolves it.
-					System.out.println("grid["+(ii+1)+"]["+(jj+1)+"] = " + (String)poss[ii][jj].get(0) + " oneline");
-					updateSquare(grid, ii, jj, (String)poss[ii][jj].get(0), poss);
-					solvedSomething = true;
-					break;
+				} catch(NumberFormatException e) {
+					System.out.println(String.format("\n Hmmm... I don't recognize the \"%s\" command-line option.", args[arg]));
+					chideUser = true;
 				}
 			}
-			if (solvedSomething) break;
 		}
 		
-		
-		return solvedSomething;
-	}
-	
-	/**
-	 * Sort of meta... Looks through the possibles matrix for values unique within their domain (horz, vert, square (TODO)) 
-	 * for a unique value and plays it.
-	 * @param grid
-	 * @param poss
-	 * @return boolean true if it found something
-	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	static boolean solveExclusions(String[][] grid, ArrayList[][] poss) {
-		boolean solvedIt = false;
-		
-		// Iterate horizontally through every possibles cell
-		for (int ii = 0; ii < poss.length; ++ii) {
-			for (int jj = 0; jj < poss[ii].length; ++jj) {
-				
-				// Skip the blanks
-				if (poss[ii][jj].size() > 0) {
-					ArrayList<String> solution = new ArrayList<String>();
-					solution.addAll(poss[ii][jj]);
-					
-					// Subtract the other cells' possibles from this one
-					for (int rowCount = 0; rowCount < poss[ii].length; ++rowCount) {
-						if (rowCount == jj) {
-							// Don't remove the current cell!
-							continue;
-						} else {
-							solution.removeAll(poss[ii][rowCount]);
-						}
-					}
-					
-					if (solution.size() == 1) {
-						// Solved it! Check out my hook while updateSquare resolves it.
-						System.out.println("grid["+(ii+1)+"]["+(jj+1)+"] = " + solution.get(0) + " horz exclusion");
-						updateSquare(grid, ii, jj, solution.get(0), poss);
-						solvedIt = true;
-						break;
-					}
+		if (!chideUser && null != convertFile) {
+			if (null == outFile) {
+				System.out.println("\n Hmmm... where should the binary file go? Tell me with -o.");
+				chideUser = true;
+			} else {
+				Engine solver = solveConverted ? engineFor(engineName, SolveListener.NONE) : null;
+				if (!runConvert(convertFile, outFile, solver, budget)) {
+					System.exit(1);
 				}
+				return;
 			}
-			if (solvedIt) break;
 		}
-
-		// Iterate vertically through every possibles cell
-		for (int jj = 0; jj < poss.length; ++jj) {
-			for (int ii = 0; ii < poss.length; ++ii) {
-				
-				// Skip the blanks
-				if (poss[ii][jj].size() > 0) {
-					ArrayList<String> solution = new ArrayList<String>();
-					solution.addAll(poss[ii][jj]);
-					
-					// Subtract the other cells' possibles from this one
-					for (int rowCount = 0; rowCount < poss.length; ++rowCount) {
-						if (rowCount == ii) {
-							// Don't remove the current cell!
-							continue;
-						} else {
-							solution.removeAll(poss[rowCount][jj]);
-						}
-					}
-					
-					if (solution.size() == 1) {
-						// Solved it! Check out my hook while updateSquare resolves it.
-						System.out.println("grid["+(ii+1)+"]["+(jj+1)+"] = " + solution.get(0) + " vert exclusion");
-						updateSquare(grid, ii, jj, solution.get(0), poss);
-						solvedIt = true;
-						break;
-					}
-				}
+		
+		if (!chideUser && generate > 0) {
+			if (!runGenerator(generate, size, seed, clues, difficulty, outFile, workers)) {
+				System.exit(1);
 			}
-			if (solvedIt) break;
+			return;
 		}
 		
-
-		return solvedIt;
-	}
-	
-	/**
-	 * Read in a puzzle file
-	 * @param args
-	 * @return a grid. Null if something terrible happened.
-	 */
-	private static String[][] readPuzzleFile(String[] args) {
-		String[][] grid = null;
-		BufferedReader sudokuFile = null;
-		boolean chideUser = false;
-		
-		if (args[0].equals("-f")) {
-			String filename = args[1];
-			
-			try {
-				FileInputStream fis = new FileInputStream(filename);
-				InputStreamReader in = new InputStreamReader(fis);
-		        sudokuFile = new BufferedReader(in);
-		        
-		        // Read SudoCue files
-		        if (filename.toLowerCase().contains(".sdk")) {
-		        	Stack<String> puzzle = new Stack<String>();
-		        	int puzzleWidth = -1;
-		        	int puzzleHeight = 0;
-		        	
-		        	String line;
-			        while((line = sudokuFile.readLine()) != null) {
-			        	// Ignore comments 
-			        	if (line.length() > 3 && line.trim().charAt(0) != '#') {
-			        		
-			            	// Get initial length read
-			        		if (-1 == puzzleWidth) {
-			            		puzzleWidth = line.length();
-			            	} else if (puzzleWidth != line.length()) {
-			            		// Puzzle is wibbly-wobbly
-			            		System.out.println(String.format("The puzzle in \"%s\" is messed up.", filename));
-			            		chideUser = true;
-			            		break;
-			            	}
-			        		
-			        		// Store the puzzle
-			        		puzzle.push(line);
-			        		puzzleHeight += 1;
-			            }
-			        }
-			        
-			        // Everything seems cool.
-			        if (!chideUser) {
-			        	// Init an empty grid
-			        	grid = gridFactory(puzzleWidth, puzzleHeight);
-			        	
-			        	// Read puzzle coordinates backwards into the grid
-			        	int ii;
-			        	for (ii = puzzleHeight - 1; ii >= 0 && puzzle.size() > 0; --ii) {
-			        		line = puzzle.pop();
-			        		
-			        		for (int jj = 0; jj < puzzleWidth; ++jj) {
-			        			// Ignore blanks
-			        			if (line.charAt(jj) != '.') {
-			        				grid[ii][jj] = String.valueOf( line.charAt(jj) );
-			        			}
-			        		}
-			        	}
-			        	
-			        	// Error check -- did we finish the puzzle?
-			        	if (ii >= 0) {
-			        		System.out.println(String.format("Puzzle height was weird, and I don't know why.\nWait -- I'm seeing something! It's the number... %d.\nDoes that mean something to you?", ii));
-			        		chideUser = true;
-			        	} else if (puzzle.size() > 0) {
-			        		System.out.println(String.format("Puzzle height was weird... the top %d rows of the puzzle might be missing.", puzzle.size()));
-			        		chideUser = true;			        		
-			        	}
-			        }
-		        } else {
-		        	System.out.println(String.format("\nThis version of mxnsudoku doesn't know how to read \"%s\"", filename));
-		        	System.out.println("It can read: 1) SudoCue .SDK files");
-            		chideUser = true;
-		        }
-		        
-		        // Clean up time
-		        sudokuFile.close();
-				
-			} catch (FileNotFoundException e) {
-				System.out.println(String.format("\n\nThe file \"%s\" does not exist.\n", args[1]));
-				e.printStackTrace();
-        		chideUser = true;
-			} catch (IOException e) {
-				System.out.println(String.format("\n\nSomething wonky happened while trying to read the file \"%s\"\n", args[1]));
-				e.printStackTrace();
-        		chideUser = true;
-			} 
-		} else {
-			System.out.println(String.format("\n Hmmm... I don't recognize the \"%s\" command-line option.", args[0]));
-    		chideUser = true;
-		}
-
-		// Shut 'er down.
-		if (chideUser) {
-			grid = null;
+		if (!chideUser && null != batchFile) {
+			if (!runBatch(batchFile, outFile, engineName, workers, countLimit, cacheSize, budget, withMetrics)) {
+				System.exit(1);
+			}
+			return;
 		}
 		
-		return grid;
-	}
-	
-	public static void main (String[] args) {
-		
-		String[][] grid = null;
-		ArrayList<String>[][] poss;
-		
-		boolean chideUser = false;
-		
-		
-		if (args.length == 1) {
-
-			// Init the Sudoku grid
-			try {
-				grid = initGrid(Integer.parseInt(args[0]));
-
-			} catch(NumberFormatException e) {
-				chideUser = true;
-			}
-			
-		} else if (args.length == 2) {
-			// Read a file instead of using a built-in game
-			grid = readPuzzleFile(args);
-			
-			if (null == grid) {
-				// herp derp
-				chideUser = true;
-			}
-		} else {
+		if (null == puzzle) {
 			chideUser = true;
 		}
 
 		
 		// Chide the user
 		if (chideUser) {
-			System.out.println("\n\n   Usage: ./Sudoku game_number");
-			System.out.println("\n\n   Usage: ./Sudoku -f sudocue_file.sdk\n\n");
+			System.out.println("\n\n   Usage: ./Sudoku [-e propagation|parallel|dlx] [-c limit] [-timeout ms] [-nodes n] [-q | -trace trace.jsonl] game_number");
+			System.out.println("\n\n   Usage: ./Sudoku [-e propagation|parallel|dlx] [-c limit] [-timeout ms] [-nodes n] [-q | -trace trace.jsonl] -f sudocue_file.sdk");
+			System.out.println("\n\n   Usage: ./Sudoku [-e propagation|parallel|dlx] [-c limit] [-timeout ms] [-nodes n] [-cache size] [-metrics] -b puzzles.txt [-o solutions.txt] [-t threads]");
+			System.out.println("\n\n   Usage: ./Sudoku [-e propagation|parallel|dlx] [-timeout ms] [-nodes n] -convert puzzles.txt|sudocue_file.sdk [-solve] -o puzzles.mxn");
+			System.out.println("\n\n   Usage: ./Sudoku -g count [-size 9] [-seed n] [-clues n] [-d easy|medium|hard] [-o puzzles.txt] [-t threads]\n\n");
 			return;
 		}
 		
+		// Who hears about the moves
+		Writer trace = null;
+		SolveListener listener = quiet ? SolveListener.NONE : new ConsoleListener();
+		if (null != traceFile) {
+			try {
+				trace = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFile), "UTF-8"), 1 << 16);
+			} catch (IOException e) {
+				System.out.println(String.format("\n\nCan't write the trace to \"%s\": %s\n", traceFile, e.getMessage()));
+				return;
+			}
+			listener = new TraceListener(trace);
+		}
+		Engine engine = engineFor(engineName, listener);
 
 		// Show the user what we've got
-		printGrid(grid);
+		printGrid(puzzle);
 		System.out.println("\n");
-
-		// Init the possibles matrix
-		poss = initPossibles(grid);
-		updatePossibles(grid, poss);
-		printGrid(poss);
+		printPossibles(puzzle);
+
+		// Count the ways it could go, if asked
+		if (countLimit > 0) {
+			long counting = System.nanoTime();
+			int solutions = engineFor(engineName, SolveListener.NONE).countSolutions(puzzle, countLimit, budget, CancellationToken.NONE);
+			if (solutions < 0) {
+				System.out.println(String.format("\n%s ran out of budget counting, after %.3f ms",
+						engine.getClass().getSimpleName(), (System.nanoTime() - counting) / 1e6));
+			} else {
+				System.out.println(String.format("\n%s found %s%d solution%s in %.3f ms",
+						engine.getClass().getSimpleName(), (solutions == countLimit && countLimit > 1) ? "at least " : "", solutions,
+						(solutions == 1) ? "" : "s", (System.nanoTime() - counting) / 1e6));
+			}
+		}
 
 		// Play the game
-		int moves = 0;
-		boolean oneLine = false;
-		boolean exclusions = false;
-		do {
-			while ( (oneLine = solve(grid, poss)) || (exclusions = solveExclusions(grid, poss)) ) {
-				System.out.println("{move " + ++moves + "} "
-						+ ((exclusions) ? "exclusion " : "") 
-						+ ((oneLine) ? "oneline " : ""));
-				
-			}
-		} while(oneLine && exclusions);
+		long started = System.nanoTime();
+		SolveStatus status = engine.solve(puzzle, budget, CancellationToken.NONE);
+		System.out.println(String.format("\n%s %s in %.3f ms", engine.getClass().getSimpleName(),
+				(status == SolveStatus.SOLVED) ? "solved it" : (status == SolveStatus.TIMEOUT) ? "ran out of budget" : "gave up",
+				(System.nanoTime() - started) / 1e6));
 		System.out.println("\n");
+		if (null != trace) {
+			try {
+				trace.close();
+			} catch (IOException e) {
+				System.out.println(String.format("\nThe trace in \"%s\" may be cut short: %s", traceFile, e.getMessage()));
+			}
+		}
 
 		
 		// Print the end state
-		printGrid(grid);
-		printGrid(poss);
+		printGrid(puzzle);
+		printPossibles(puzzle);
 		
 	}
 	
@@ -0,0 +1,89 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * Naked pairs, triples and quads: when k cells of a unit can only take the same k symbols between them,
+ * those symbols are spoken for, so no other cell of the unit can take them.
+ */
+public class NakedSubsetTechnique implements Technique {
+
+	private static final String[] NAMES = { "", "", "naked pair", "naked triple", "naked quad" };
+
+	private final int k;
+
+	/**
+	 * @param k subset size, 2 to 4
+	 */
+	public NakedSubsetTechnique(int k) {
+		if (k < 2 || k >= NAMES.length) {
+			throw new IllegalArgumentException("Subsets come in 2 to " + (NAMES.length - 1) + ", not " + k);
+		}
+		this.k = k;
+	}
+
+	public String name() {
+		return NAMES[k];
+	}
+
+	public boolean apply(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		boolean struck = false;
+		int[] members = new int[size];
+
+		for (int unit = 0; unit < geometry.unitCount(); ++unit) {
+			// Only cells with 2..k possibles can be in a naked subset of k
+			int count = 0;
+			for (int nth = 0; nth < size; ++nth) {
+				int found = Long.bitCount(puzzle.possibles().mask(geometry.unitCell(unit, nth)));
+				if (found >= 2 && found <= k) {
+					members[count++] = nth;
+				}
+			}
+			if (count >= k) {
+				struck |= find(puzzle, unit, members, count, 0, 0, 0L, 0L);
+			}
+		}
+		return struck;
+	}
+
+	/**
+	 * Try every way of adding members to a subset, striking the first one that pays off.
+	 * @param cells the subset so far, as a mask of positions in the unit
+	 * @param symbols the union of its possibles
+	 * @return true if anything was struck
+	 */
+	private boolean find(Puzzle puzzle, int unit, int[] members, int count, int from, int chosen, long cells, long symbols) {
+		SudokuGeometry geometry = puzzle.geometry();
+		if (chosen == k) {
+			boolean struck = false;
+			for (int nth = 0; nth < geometry.horz(); ++nth) {
+				int cell = geometry.unitCell(unit, nth);
+				if ((cells & (1L << nth)) == 0 && (puzzle.possibles().mask(cell) & symbols) != 0) {
+					puzzle.removePossibles(cell, symbols);
+					struck = true;
+				}
+			}
+			return struck;
+		}
+
+		for (int next = from; next < count; ++next) {
+			long union = symbols | puzzle.possibles().mask(geometry.unitCell(unit, members[next]));
+			if (Long.bitCount(union) <= k
+					&& find(puzzle, unit, members, count, next + 1, chosen + 1, cells | (1L << members[next]), union)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
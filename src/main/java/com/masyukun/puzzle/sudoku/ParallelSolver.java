@@ -0,0 +1,219 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Searches one puzzle on many cores. The top few levels of the search tree are split into fork-join
+ * subtasks, each working on its own copy of the puzzle; below that each subtask searches sequentially
+ * with the Solver. The first subtask to find a solution cancels all the others.
+ * Meant for big boards where one search tree takes a long time; small puzzles are faster with the plain Solver.
+ * <p>
+ * A solver with a parallelism of its own owns a pool of threads, which close() shuts down; one on the
+ * common pool has nothing to close.
+ */
+public class ParallelSolver implements Engine, Closeable {
+
+	private final Solver solver;
+	private final ForkJoinPool pool;
+	private final boolean ownPool;
+	private final int splitDepth;
+
+	/**
+	 * A parallel solver on the common fork-join pool.
+	 * @param solver does the deducing and the sequential search below the split; should be quiet
+	 */
+	public ParallelSolver(Solver solver) {
+		this(solver, ForkJoinPool.commonPool(), false);
+	}
+
+	/**
+	 * A parallel solver with a pool of its own; close it when done.
+	 * @param solver does the deducing and the sequential search below the split; should be quiet
+	 * @param parallelism number of threads
+	 */
+	public ParallelSolver(Solver solver, int parallelism) {
+		this(solver, new ForkJoinPool(parallelism), true);
+	}
+
+	private ParallelSolver(Solver solver, ForkJoinPool pool, boolean ownPool) {
+		this.solver = solver;
+		this.pool = pool;
+		this.ownPool = ownPool;
+		int parallelism = pool.getParallelism();
+
+		// Split until there are a few subtasks per thread, assuming the usual two-way branching
+		int depth = 1;
+		while ((1 << depth) < parallelism * 4) {
+			depth += 1;
+		}
+		this.splitDepth = depth;
+	}
+
+	public boolean solve(Puzzle puzzle) {
+		return solve(puzzle, SolveBudget.UNLIMITED, CancellationToken.NONE) == SolveStatus.SOLVED;
+	}
+
+	/**
+	 * The timeout, the token and the node limit cover the whole solve, branching above the split included;
+	 * the trail limit applies to each subtask's copy of the puzzle on its own. Clashing givens are
+	 * turned away before anything is forked.
+	 * @see Engine#solve(Puzzle, SolveBudget, CancellationToken)
+	 */
+	public SolveStatus solve(Puzzle puzzle, SolveBudget budget, CancellationToken token) {
+		if (puzzle.hasConflicts()) {
+			return SolveStatus.UNSOLVED;
+		}
+		Solver.Deduction deduction = solver.propagate(puzzle);
+		if (deduction != Solver.Deduction.STUCK) {
+			return (deduction == Solver.Deduction.SOLVED) ? SolveStatus.SOLVED : SolveStatus.UNSOLVED;
+		}
+
+		// The winner trips found, which stops every other branch; so does the caller's token
+		AtomicReference<Puzzle> winner = new AtomicReference<Puzzle>();
+		CancellationToken found = new CancellationToken(token);
+		AtomicBoolean exhausted = new AtomicBoolean();
+		pool.invoke(new Branch(new Puzzle(puzzle), 0, winner, found, budget.start(found).share(), exhausted));
+
+		Puzzle solution = winner.get();
+		if (null == solution) {
+			return token.isCancelled() ? SolveStatus.CANCELLED : exhausted.get() ? SolveStatus.TIMEOUT : SolveStatus.UNSOLVED;
+		}
+
+		// Copy the winning branch's moves onto the caller's puzzle
+		for (int ii = 0; ii < puzzle.geometry().horz(); ++ii) {
+			for (int jj = 0; jj < puzzle.geometry().vert(); ++jj) {
+				if (puzzle.isEmpty(ii, jj)) {
+					puzzle.updateSquare(ii, jj, solution.symbolAt(ii, jj));
+				}
+			}
+		}
+		return puzzle.isSolved() ? SolveStatus.SOLVED : SolveStatus.UNSOLVED;
+	}
+
+	/**
+	 * Counted on the calling thread; counting up to a small limit rarely goes deep enough to be worth splitting.
+	 */
+	public int countSolutions(Puzzle puzzle, int limit) {
+		return solver.countSolutions(puzzle, limit);
+	}
+
+	/**
+	 * Counted on the calling thread, like countSolutions(Puzzle, int).
+	 * @see Engine#countSolutions(Puzzle, int, SolveBudget, CancellationToken)
+	 */
+	public int countSolutions(Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token) {
+		return solver.countSolutions(puzzle, limit, budget, token);
+	}
+
+	/**
+	 * Shut down the pool, if it's ours.
+	 */
+	public void close() {
+		if (ownPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * One subtree of the search, with its own copy of the puzzle.
+	 */
+	private final class Branch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Puzzle puzzle;
+		private final int depth;
+		private final AtomicReference<Puzzle> winner;
+		private final CancellationToken found;
+		/** The solve's shared meter; only ever forked, never paid, since every branch has its own thread */
+		private final SolveBudget.Meter meter;
+		private final AtomicBoolean exhausted;
+
+		Branch(Puzzle puzzle, int depth, AtomicReference<Puzzle> winner, CancellationToken found,
+				SolveBudget.Meter meter, AtomicBoolean exhausted) {
+			this.puzzle = puzzle;
+			this.depth = depth;
+			this.winner = winner;
+			this.found = found;
+			this.meter = meter;
+			this.exhausted = exhausted;
+		}
+
+		@Override
+		protected void compute() {
+			if (found.isCancelled()) {
+				return;
+			}
+
+			// Deep enough, go it alone
+			if (depth >= splitDepth) {
+				SolveBudget.Meter own = meter.fork();
+				if (solver.search(puzzle, depth, own)) {
+					win();
+				} else if (own.status(false) == SolveStatus.TIMEOUT) {
+					exhausted.set(true);
+				}
+				return;
+			}
+
+			// Branching above the split is search too, and pays for its node like any other
+			SolveBudget.Meter own = meter.fork();
+			if (!own.node(puzzle.mark())) {
+				if (own.status(false) == SolveStatus.TIMEOUT) {
+					exhausted.set(true);
+				}
+				return;
+			}
+			Solver.Deduction deduction = solver.propagate(puzzle);
+			if (deduction != Solver.Deduction.STUCK) {
+				if (deduction == Solver.Deduction.SOLVED) {
+					win();
+				}
+				return;
+			}
+			int best = Solver.chooseCell(puzzle);
+			if (best < 0) {
+				return;
+			}
+			int bestRow = best / puzzle.geometry().vert();
+			int bestCol = best % puzzle.geometry().vert();
+
+			// One subtask per possible move, each on its own copy
+			List<Branch> branches = new ArrayList<Branch>();
+			for (int word = 0; word < puzzle.possibles().words(); ++word) {
+				long guesses = puzzle.possibles().word(best, word);
+				while (guesses != 0) {
+					int index = word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(guesses);
+					guesses &= guesses - 1;
+
+					Puzzle child = new Puzzle(puzzle);
+					if (child.updateSquare(bestRow, bestCol, index)) {
+						branches.add(new Branch(child, depth + 1, winner, found, meter, exhausted));
+					}
+				}
+			}
+			invokeAll(branches);
+		}
+
+		private void win() {
+			if (winner.compareAndSet(null, puzzle)) {
+				found.cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * Pointing pairs and triples: when a symbol's only cells in a square all sit in one row (or one column),
+ * the symbol must go in that square, so it can't go anywhere else in the row.
+ */
+public class PointingTechnique implements Technique {
+
+	public String name() {
+		return "pointing";
+	}
+
+	public boolean apply(Puzzle puzzle) {
+		SudokuGeometry geometry = puzzle.geometry();
+		Candidates poss = puzzle.possibles();
+		int size = geometry.horz();
+		boolean struck = false;
+
+		for (int square = 0; square < size; ++square) {
+			// Which symbols each row and column of the square can still take
+			int firstRow = geometry.squareCell(square, 0) / size;
+			int firstCol = geometry.squareCell(square, 0) % size;
+			long[] byRow = new long[geometry.rowsInSquare()];
+			long[] byCol = new long[geometry.columnsInSquare()];
+			for (int nth = 0; nth < size; ++nth) {
+				int cell = geometry.squareCell(square, nth);
+				long mask = poss.mask(cell);
+				byRow[cell / size - firstRow] |= mask;
+				byCol[cell % size - firstCol] |= mask;
+			}
+
+			// A symbol is pointing when exactly one row (column) of the square has it
+			for (int row = 0; row < byRow.length; ++row) {
+				long others = 0L;
+				for (int other = 0; other < byRow.length; ++other) {
+					others |= (other == row) ? 0L : byRow[other];
+				}
+				long pointing = byRow[row] & ~others;
+				if (pointing != 0) {
+					struck |= strike(puzzle, firstRow + row, -1, square, pointing);
+				}
+			}
+			for (int col = 0; col < byCol.length; ++col) {
+				long others = 0L;
+				for (int other = 0; other < byCol.length; ++other) {
+					others |= (other == col) ? 0L : byCol[other];
+				}
+				long pointing = byCol[col] & ~others;
+				if (pointing != 0) {
+					struck |= strike(puzzle, -1, firstCol + col, square, pointing);
+				}
+			}
+		}
+		return struck;
+	}
+
+	/**
+	 * Strike symbols from a row or a column, outside one square.
+	 * @param row the row, or -1
+	 * @param col the column, or -1
+	 * @return true if anything was struck
+	 */
+	private static boolean strike(Puzzle puzzle, int row, int col, int square, long symbols) {
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		boolean struck = false;
+		for (int nth = 0; nth < size; ++nth) {
+			int cell = (row >= 0) ? row * size + nth : nth * size + col;
+			if (geometry.squareOf(cell) != square && (puzzle.possibles().mask(cell) & symbols) != 0) {
+				puzzle.removePossibles(cell, symbols);
+				struck = true;
+			}
+		}
+		return struck;
+	}
+}
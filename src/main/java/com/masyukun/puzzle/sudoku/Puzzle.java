@@ -0,0 +1,500 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * One Sudoku board in play: the grid of symbols and its matrix of possible moves.
+ * A puzzle is mutable and belongs to one thread at a time; its geometry is shared and immutable.
+ * The board holds alphabet indexes, not Strings; symbols only turn back into Strings on the way out.
+ */
+public class Puzzle {
+
+	/** Symbol of a blank cell */
+	public static final String EMPTY = "";
+
+	private final SudokuGeometry geometry;
+	/** Alphabet index + 1 of every cell, row by row; 0 is blank */
+	private final short[] board;
+	private int filled = 0;
+	private final Candidates possibles;
+
+	// Undo trail: one entry per change since the puzzle was built. A possibles slot (cell * words + word)
+	// with the word it had before the change, or ~cell for a symbol played on a cell, with what the cell
+	// held before (0 for empty).
+	private int[] trailCells = new int[64];
+	private long[] trailMasks = new long[64];
+	private int trailSize = 0;
+
+	// Units whose possibles changed since a solver last looked at them, in a ring; see nextDirtyUnit
+	private final int[] dirtyUnits;
+	private final boolean[] dirty;
+	private int dirtyHead = 0;
+	private int dirtyCount = 0;
+
+	/**
+	 * Produce a blank puzzle.
+	 * @param geometry
+	 */
+	public Puzzle(SudokuGeometry geometry) {
+		this.geometry = geometry;
+		this.board = new short[geometry.horz() * geometry.vert()];
+		this.possibles = new Candidates(geometry.horz(), geometry.vert(), geometry.numbers().size());
+		this.dirtyUnits = new int[geometry.unitCount()];
+		this.dirty = new boolean[geometry.unitCount()];
+		updatePossibles();
+	}
+
+	/**
+	 * Produce a puzzle from a grid of givens. The grid is copied; EMPTY or null cells are blanks.
+	 * @param geometry
+	 * @param givens
+	 */
+	public Puzzle(SudokuGeometry geometry, String[][] givens) {
+		this.geometry = geometry;
+		if (givens.length != geometry.horz() || givens[0].length != geometry.vert()) {
+			throw new IllegalArgumentException(String.format("Expected a %dx%d grid, got %dx%d",
+					geometry.horz(), geometry.vert(), givens.length, givens[0].length));
+		}
+		this.board = new short[geometry.horz() * geometry.vert()];
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < geometry.vert(); ++jj) {
+				String symbol = givens[ii][jj];
+				if (null == symbol || symbol.equals(EMPTY)) {
+					continue;
+				}
+				int index = geometry.indexOf(symbol);
+				if (index < 0) {
+					throw new IllegalArgumentException(String.format("grid[%d][%d] = \"%s\" is not one of %s",
+							ii + 1, jj + 1, symbol, geometry.numbers()));
+				}
+				board[ii * geometry.vert() + jj] = (short) (index + 1);
+				filled += 1;
+			}
+		}
+		this.possibles = new Candidates(geometry.horz(), geometry.vert(), geometry.numbers().size());
+		this.dirtyUnits = new int[geometry.unitCount()];
+		this.dirty = new boolean[geometry.unitCount()];
+		updatePossibles();
+	}
+
+	/**
+	 * Produce a puzzle from givens already turned into alphabet indexes, skipping the Strings.
+	 * @param geometry
+	 * @param givens alphabet index + 1 of every cell, row by row; 0 is blank. Copied.
+	 */
+	public Puzzle(SudokuGeometry geometry, short[] givens) {
+		this.geometry = geometry;
+		if (givens.length != geometry.horz() * geometry.vert()) {
+			throw new IllegalArgumentException(String.format("Expected %d cells, got %d",
+					geometry.horz() * geometry.vert(), givens.length));
+		}
+		this.board = givens.clone();
+		for (int cell = 0; cell < board.length; ++cell) {
+			if (board[cell] < 0 || board[cell] > geometry.numbers().size()) {
+				throw new IllegalArgumentException(String.format("grid[%d][%d] = %d is off the alphabet",
+						cell / geometry.vert() + 1, cell % geometry.vert() + 1, board[cell]));
+			}
+			filled += (board[cell] == 0) ? 0 : 1;
+		}
+		this.possibles = new Candidates(geometry.horz(), geometry.vert(), geometry.numbers().size());
+		this.dirtyUnits = new int[geometry.unitCount()];
+		this.dirty = new boolean[geometry.unitCount()];
+		updatePossibles();
+	}
+
+	/**
+	 * Copy constructor; the copy shares nothing mutable with the original.
+	 * @param other
+	 */
+	public Puzzle(Puzzle other) {
+		this.geometry = other.geometry;
+		this.board = other.board.clone();
+		this.filled = other.filled;
+		this.possibles = new Candidates(geometry.horz(), geometry.vert(), geometry.numbers().size());
+		for (int slot = 0; slot < board.length * possibles.words(); ++slot) {
+			possibles.setSlot(slot, other.possibles.slot(slot));
+		}
+		this.dirtyUnits = new int[geometry.unitCount()];
+		this.dirty = new boolean[geometry.unitCount()];
+		touchAll();
+	}
+
+	/**
+	 * Produce an empty grid, initialized with EMPTY Strings.
+	 * @param horz number of rows
+	 * @param vert number of columns
+	 * @return the grid
+	 */
+	static String[][] gridFactory(int horz, int vert) {
+		// Create the grid
+		String grid[][] = new String[horz][vert];
+
+		// Fill the grid with blank strings
+		for (int ii = 0; ii < horz; ++ii) {
+			for (int jj = 0; jj < vert; ++jj) {
+				grid[ii][jj] = EMPTY;
+			}
+		}
+
+		return grid;
+	}
+
+	public SudokuGeometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * @return the symbol at a cell, or EMPTY
+	 */
+	public String get(int ii, int jj) {
+		int index = board[ii * geometry.vert() + jj] - 1;
+		return (index < 0) ? EMPTY : geometry.symbol(index);
+	}
+
+	/**
+	 * @return the alphabet index of the symbol at a cell, or -1 if it's blank
+	 */
+	public int symbolAt(int ii, int jj) {
+		return board[ii * geometry.vert() + jj] - 1;
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 * @return the alphabet index of the symbol at a cell, or -1 if it's blank
+	 */
+	public int symbolAt(int cell) {
+		return board[cell] - 1;
+	}
+
+	public boolean isEmpty(int ii, int jj) {
+		return board[ii * geometry.vert() + jj] == 0;
+	}
+
+	/**
+	 * @param cell row * vert + column
+	 */
+	public boolean isEmpty(int cell) {
+		return board[cell] == 0;
+	}
+
+	/**
+	 * @return the live matrix of possible moves
+	 */
+	public Candidates possibles() {
+		return possibles;
+	}
+
+	/**
+	 * @return a copy of the grid
+	 */
+	public String[][] toGrid() {
+		String[][] copy = gridFactory(geometry.horz(), geometry.vert());
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < geometry.vert(); ++jj) {
+				copy[ii][jj] = get(ii, jj);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * @return true when every cell holds a symbol
+	 */
+	public boolean isSolved() {
+		return filled == board.length;
+	}
+
+	/**
+	 * @return true if some row, column or square holds a symbol twice
+	 */
+	public boolean hasConflicts() {
+		int size = geometry.horz();
+		long[] seen = new long[possibles.words()];
+		for (int unit = 0; unit < geometry.unitCount(); ++unit) {
+			Arrays.fill(seen, 0L);
+			for (int nth = 0; nth < size; ++nth) {
+				int index = symbolAt(geometry.unitCell(unit, nth));
+				if (index >= 0) {
+					int word = index / Candidates.WORD_SIZE;
+					if ((seen[word] & (1L << index)) != 0) {
+						return true;
+					}
+					seen[word] |= 1L << index;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the nth vertical row of values from the Sudoku grid.
+	 * @param index
+	 * @return
+	 */
+	ArrayList<String> getNthVertical(Integer index) {
+		ArrayList<String> vertresult = new ArrayList<String>();
+
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			if ( !isEmpty(ii, index) ) {
+				vertresult.add(get(ii, index));
+			}
+		}
+
+		return vertresult;
+	}
+
+	/**
+	 * Get the nth horizontal row of values from the Sudoku grid.
+	 * @param index
+	 * @return
+	 */
+	ArrayList<String> getNthHorizontal(Integer index) {
+		ArrayList<String> horzresult = new ArrayList<String>();
+
+		for (int ii = 0; ii < geometry.vert(); ++ii) {
+			if ( !isEmpty(index, ii) ) {
+				horzresult.add(get(index, ii));
+			}
+		}
+
+		return horzresult;
+	}
+
+	/**
+	 * Get Nth square of the Sudoku grid.
+	 * Square are numbered starting with 0 and are indexed from top left, across the columns, then down the rows.
+	 * @param index
+	 * @return
+	 */
+	ArrayList<String> getNthSquare(int index) {
+		ArrayList<String> sqrresult = new ArrayList<String>();
+
+		// Serialize the square
+		for (int nth = 0; nth < geometry.horz(); ++nth) {
+			int cell = geometry.squareCell(index, nth);
+			if ( !isEmpty(cell) ) {
+				sqrresult.add(geometry.symbol(symbolAt(cell)));
+			}
+		}
+
+		return sqrresult;
+	}
+
+	/**
+	 * Rebuild the whole matrix of possible moves from the Sudoku grid. Forgets the undo trail.
+	 */
+	public void updatePossibles() {
+		int symbols = geometry.numbers().size();
+		int words = possibles.words();
+		trailSize = 0;
+
+		// What's been played in every row, column and square, words longs to a unit, in one pass over the grid
+		long[] rowTaken = new long[geometry.horz() * words];
+		long[] colTaken = new long[geometry.vert() * words];
+		long[] squareTaken = new long[geometry.horz() * words];
+		int vert = geometry.vert();
+		for (int cell = 0; cell < board.length; ++cell) {
+			if ( board[cell] != 0 ) {
+				int index = board[cell] - 1;
+				int word = index / Candidates.WORD_SIZE;
+				long bit = 1L << index;
+				rowTaken[cell / vert * words + word] |= bit;
+				colTaken[cell % vert * words + word] |= bit;
+				squareTaken[geometry.squareOf(cell) * words + word] |= bit;
+			}
+		}
+
+		for (int ii = 0; ii < geometry.horz(); ++ii) {
+			for (int jj = 0; jj < vert; ++jj) {
+				// Reset grid
+				possibles.clear(ii, jj);
+
+				if ( board[ii * vert + jj] == 0 ) {
+					// Remove all the things it CAN'T be
+					int square = geometry.inWhichSquare(ii, jj);
+					for (int word = 0; word < words; ++word) {
+						long taken = rowTaken[ii * words + word] | colTaken[jj * words + word] | squareTaken[square * words + word];
+						possibles.setWord(ii * vert + jj, word, Candidates.fullWord(symbols, word) & ~taken);
+					}
+				}
+			}
+		}
+		touchAll();
+	}
+
+	/**
+	 * Play a move on the Sudoku grid and strike the symbol from the possibles of its row, column and square peers.
+	 * Only the peers are touched, so a move costs O(peers) rather than a full updatePossibles.
+	 * @param horz row
+	 * @param vert column
+	 * @param index alphabet index of the symbol
+	 * @return false if the move left an empty cell with no possible moves
+	 */
+	public boolean updateSquare(int horz, int vert, int index) {
+		if (horz < 0 || horz >= geometry.horz() || vert < 0 || vert >= geometry.vert()) {
+			throw new IllegalArgumentException(String.format("grid[%d][%d] is off the %dx%d board",
+					horz + 1, vert + 1, geometry.horz(), geometry.vert()));
+		}
+		if (index < 0 || index >= geometry.numbers().size()) {
+			throw new IllegalArgumentException("Symbol must be one of " + geometry.numbers());
+		}
+
+		// Assign the symbol
+		int cell = horz * geometry.vert() + vert;
+		record(~cell, board[cell]);
+		if (board[cell] == 0) {
+			filled += 1;
+		}
+		board[cell] = (short) (index + 1);
+		int words = possibles.words();
+		for (int slot = cell * words; slot < (cell + 1) * words; ++slot) {
+			record(slot, possibles.slot(slot));
+			possibles.setSlot(slot, 0L);
+		}
+		touch(cell);
+
+		// Update the peers' possibles
+		boolean consistent = true;
+		int word = index / Candidates.WORD_SIZE;
+		long bit = 1L << index;
+		for (int nth = 0; nth < geometry.peerCount(); ++nth) {
+			consistent &= removePossibles(geometry.peer(cell, nth), word, bit);
+		}
+
+		return consistent;
+	}
+
+	/**
+	 * Play a move by symbol name.
+	 * @see #updateSquare(int, int, int)
+	 */
+	public boolean updateSquare(int horz, int vert, String symbol) {
+		return updateSquare(horz, vert, geometry.indexOf(symbol));
+	}
+
+	/**
+	 * Strike symbols from a cell's possibles, for deductions that narrow a cell without playing it.
+	 * Undo takes the strike back like any move.
+	 * @param cell row * vert + column
+	 * @param symbols candidate mask of the symbols to strike, from the first 64
+	 * @return false if the cell is empty on the grid and has run out of possible moves
+	 */
+	public boolean removePossibles(int cell, long symbols) {
+		return removePossibles(cell, 0, symbols);
+	}
+
+	/**
+	 * Strike symbols from one word of a cell's possibles.
+	 * @param cell row * vert + column
+	 * @param word which 64 symbols, as in Candidates.word
+	 * @param symbols mask of the symbols to strike within that word
+	 * @return false if the cell is empty on the grid and has run out of possible moves
+	 * @see #removePossibles(int, long)
+	 */
+	public boolean removePossibles(int cell, int word, long symbols) {
+		int words = possibles.words();
+		int slot = cell * words + word;
+		long mask = possibles.slot(slot);
+		if ((mask & symbols) == 0) {
+			return true;
+		}
+		record(slot, mask);
+		possibles.setSlot(slot, mask & ~symbols);
+		touch(cell);
+		return !((mask & ~symbols) == 0 && board[cell] == 0 && (words == 1 || possibles.size(cell) == 0));
+	}
+
+	/**
+	 * Queue the row, column and square of a changed cell for another look.
+	 */
+	private void touch(int cell) {
+		int size = geometry.horz();
+		enqueue(cell / size);
+		enqueue(size + cell % size);
+		enqueue(2 * size + geometry.squareOf(cell));
+	}
+
+	/**
+	 * Queue every unit, for when the whole board is new.
+	 */
+	private void touchAll() {
+		for (int unit = 0; unit < dirty.length; ++unit) {
+			enqueue(unit);
+		}
+	}
+
+	private void enqueue(int unit) {
+		if (!dirty[unit]) {
+			dirty[unit] = true;
+			dirtyUnits[(dirtyHead + dirtyCount) % dirtyUnits.length] = unit;
+			dirtyCount += 1;
+		}
+	}
+
+	/**
+	 * Take the oldest unit whose possibles changed since it was last taken. A fresh puzzle starts with
+	 * every unit queued, and every move or elimination queues the units of the cells it touched, so a
+	 * solver that drains the queue only looks where something can have changed. The queue isn't part of
+	 * the undo trail; an undo can leave stale units queued, which only costs a wasted look.
+	 * @return the unit, numbered as in SudokuGeometry.unitCell, or -1 if none is queued
+	 */
+	int nextDirtyUnit() {
+		if (dirtyCount == 0) {
+			return -1;
+		}
+		int unit = dirtyUnits[dirtyHead];
+		dirtyHead = (dirtyHead + 1) % dirtyUnits.length;
+		dirtyCount -= 1;
+		dirty[unit] = false;
+		return unit;
+	}
+
+	/**
+	 * Remember a change so undo can take it back.
+	 */
+	private void record(int slot, long mask) {
+		if (trailSize == trailCells.length) {
+			trailCells = Arrays.copyOf(trailCells, trailSize * 2);
+			trailMasks = Arrays.copyOf(trailMasks, trailSize * 2);
+		}
+		trailCells[trailSize] = slot;
+		trailMasks[trailSize] = mask;
+		trailSize += 1;
+	}
+
+	/**
+	 * Bookmark the current state, for a later undo.
+	 * @return the bookmark
+	 */
+	public int mark() {
+		return trailSize;
+	}
+
+	/**
+	 * Take back every move and elimination made since a bookmark.
+	 * @param mark a value returned by mark()
+	 */
+	public void undo(int mark) {
+		while (trailSize > mark) {
+			trailSize -= 1;
+			int slot = trailCells[trailSize];
+			if (slot < 0) {
+				board[~slot] = (short) trailMasks[trailSize];
+				filled -= (board[~slot] == 0) ? 1 : 0;
+			} else {
+				possibles.setSlot(slot, trailMasks[trailSize]);
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * The puzzles of a file, read one at a time as they're asked for. Get one from PuzzleFormats.open.
+ */
+public class PuzzleFileReader implements Iterator<Puzzle>, Closeable {
+
+	private final BufferedReader in;
+	private final PuzzleFormat format;
+	private final Iterator<Puzzle> puzzles;
+
+	/**
+	 * @param in positioned at the start of the file; closed by close()
+	 * @param format
+	 */
+	public PuzzleFileReader(BufferedReader in, PuzzleFormat format) {
+		this.in = in;
+		this.format = format;
+		this.puzzles = format.read(in);
+	}
+
+	/**
+	 * @return the format the file is in
+	 */
+	public PuzzleFormat format() {
+		return format;
+	}
+
+	/**
+	 * @throws java.io.UncheckedIOException if the file can't be read
+	 */
+	public boolean hasNext() {
+		return puzzles.hasNext();
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the puzzle won't parse; the next one can still be read
+	 * @throws java.io.UncheckedIOException if the file can't be read
+	 */
+	public Puzzle next() {
+		return puzzles.next();
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+}
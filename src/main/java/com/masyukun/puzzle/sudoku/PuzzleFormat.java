@@ -0,0 +1,42 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A text format for puzzle files. Formats are picked by what a file holds, not what it's called:
+ * PuzzleFormats shows each one the first lines of a file and takes the first that recognizes them.
+ */
+public interface PuzzleFormat {
+
+	/**
+	 * @return what people call this format, like "SudoCue .sdk"
+	 */
+	String name();
+
+	/**
+	 * @param head the first lines of a file, untrimmed, at most PuzzleFormats.HEAD_LINES of them
+	 * @return true if files that start like this are in this format
+	 */
+	boolean recognizes(List<String> head);
+
+	/**
+	 * Read the puzzles of a file as they're asked for, so a file of a million puzzles never has to fit
+	 * in memory. The iterator throws IllegalArgumentException for a puzzle that won't parse, and carries
+	 * on with the next one if asked; read errors come out as UncheckedIOException.
+	 * @param in positioned at the start of the file; not closed by the iterator
+	 * @return the puzzles, in file order
+	 */
+	Iterator<Puzzle> read(BufferedReader in);
+}
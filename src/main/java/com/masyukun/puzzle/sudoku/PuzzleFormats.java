@@ -0,0 +1,159 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The puzzle formats this version knows, and the sniffing that picks one for a file. The built-in ones
+ * are tried in this order:
+ * <ol>
+ * <li>SudoCue .sdx: rows of cells separated by spaces, where a cell is a given, a u and a played
+ *     symbol, or a run of candidates</li>
+ * <li>Simple Sudoku .ss: rows with | between the squares, and lines like ---+---+--- between the bands</li>
+ * <li>SudoCue .sdm: one puzzle per line, one character per cell, like LineFormat</li>
+ * <li>SudoCue .sdk: a single board, one row per line</li>
+ * </ol>
+ * Lines of N cells that each read as a puzzle are one-line puzzles, however many there are; it takes a
+ * declaration, a [Puzzle] header or a row that isn't a puzzle on its own to make them an NxN board.
+ */
+public final class PuzzleFormats {
+
+	/** Lines shown to each format to recognize; enough for a 256x256 board and its comments */
+	public static final int HEAD_LINES = 300;
+
+	/** Characters the head can take up, which the reader has to be able to rewind */
+	static final int HEAD_CHARS = 1 << 20;
+
+	private static final List<PuzzleFormat> FORMATS = new CopyOnWriteArrayList<PuzzleFormat>(Arrays.asList(
+			new SdxFormat(), new SsFormat(), new SdmFormat(), new SdkFormat()));
+
+	private PuzzleFormats() {
+	}
+
+	/**
+	 * Teach every reader a new format. It gets first look at each file, ahead of the ones already known.
+	 * @param format
+	 */
+	public static void register(PuzzleFormat format) {
+		FORMATS.add(0, format);
+	}
+
+	/**
+	 * @return the known formats, in the order they're tried
+	 */
+	public static List<PuzzleFormat> formats() {
+		return Collections.unmodifiableList(FORMATS);
+	}
+
+	/**
+	 * @param head the first lines of a file
+	 * @return the first format that recognizes them, or null
+	 */
+	public static PuzzleFormat detect(List<String> head) {
+		for (PuzzleFormat format : FORMATS) {
+			if (format.recognizes(head)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Open a puzzle file in whatever format it's in.
+	 * @param file
+	 * @return a reader over its puzzles, or null if no format recognizes it
+	 * @throws IOException
+	 */
+	public static PuzzleFileReader open(File file) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), 1 << 16);
+		try {
+			PuzzleFormat format = detect(head(in));
+			if (null != format) {
+				PuzzleFileReader reader = new PuzzleFileReader(in, format);
+				in = null;
+				return reader;
+			}
+			return null;
+		} finally {
+			if (null != in) {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Peek at the first lines of a reader, leaving it where it was.
+	 * @param in
+	 * @return up to HEAD_LINES lines
+	 * @throws IOException
+	 */
+	static List<String> head(BufferedReader in) throws IOException {
+		List<String> head = new ArrayList<String>();
+		in.mark(HEAD_CHARS);
+		int chars = 0;
+		String line;
+		// Stop short of the mark limit, or the reset won't take
+		while (head.size() < HEAD_LINES && chars < HEAD_CHARS / 2 && (line = in.readLine()) != null) {
+			head.add(line);
+			chars += line.length() + 1;
+		}
+		in.reset();
+		return head;
+	}
+
+	/**
+	 * @return the lines that aren't blank or # comments, trimmed
+	 */
+	static List<String> dataLines(List<String> lines) {
+		List<String> data = new ArrayList<String>(lines.size());
+		for (String line : lines) {
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '#') {
+				data.add(line);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * @return true if some # comment declares the geometry or symbols, which only .sdk files do
+	 */
+	static boolean declaresBoard(List<String> lines) {
+		for (String line : lines) {
+			line = line.trim();
+			if (line.startsWith("#")) {
+				String word = line.substring(1).trim().split("\\s+")[0];
+				if (word.equalsIgnoreCase("geometry") || word.equalsIgnoreCase("symbols")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Split a row into cells: one character a cell, unless there are spaces between the symbols.
+	 * @param line trimmed
+	 */
+	static String[] cells(String line) {
+		return (line.indexOf(' ') >= 0 || line.indexOf('\t') >= 0) ? line.split("\\s+") : line.split("");
+	}
+}
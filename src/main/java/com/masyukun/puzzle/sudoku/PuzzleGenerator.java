@@ -0,0 +1,283 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Makes fresh puzzles with exactly one solution. A random full grid comes from a search that tries each
+ * cell's possible moves in random order, on a board seeded with a shuffled first square, shuffled further
+ * by swapping rows within bands, bands, columns within stacks and stacks. Then clues come out in random
+ * order, each one only if the puzzle stays unique.
+ * <p>
+ * The same seed always makes the same puzzle, however many threads are generating.
+ */
+public class PuzzleGenerator {
+
+	/** How hard a puzzle is, by what it takes to solve it */
+	public enum Difficulty {
+		/** Singles alone solve it */
+		EASY,
+		/** Needs the standard techniques, but no guessing */
+		MEDIUM,
+		/** Needs guessing */
+		HARD
+	}
+
+	/** Grids tried for a difficulty before giving up */
+	static final int MAX_ATTEMPTS = 1000;
+
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	private final SudokuGeometry geometry;
+	private final DancingLinks links = new DancingLinks();
+	private final Solver singles = new Solver(SolveListener.NONE, Collections.<Technique>emptyList());
+	private final Solver techniques = new Solver();
+
+	/**
+	 * @param geometry the board, squares and alphabet of the puzzles to make
+	 */
+	public PuzzleGenerator(SudokuGeometry geometry) {
+		this.geometry = geometry;
+	}
+
+	public SudokuGeometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * Make one puzzle.
+	 * @param seed
+	 * @param clues stop taking clues out at this many; 0 for as few as we can
+	 * @param difficulty how hard it must be, or null for whatever comes out
+	 * @return a puzzle with exactly one solution
+	 * @throws IllegalStateException if no puzzle of that difficulty turned up in MAX_ATTEMPTS grids
+	 */
+	public Puzzle generate(long seed, int clues, Difficulty difficulty) {
+		Random random = new Random(seed);
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+			Puzzle puzzle = removeClues(fullGrid(random), clues, random);
+			if (null == difficulty || rate(puzzle) == difficulty) {
+				return puzzle;
+			}
+		}
+		throw new IllegalStateException(String.format("No %s puzzle with %d clues turned up in %d tries",
+				difficulty, clues, MAX_ATTEMPTS));
+	}
+
+	/**
+	 * Make puzzles and write them in LineFormat, one per line, in seed order.
+	 * @param count how many
+	 * @param seed the ith puzzle gets a seed made from this and i
+	 * @param clues as for generate
+	 * @param difficulty as for generate
+	 * @param out flushed, not closed, at the end
+	 * @param workers number of generating threads
+	 * @throws IOException
+	 */
+	public void write(int count, final long seed, final int clues, final Difficulty difficulty, Writer out, int workers)
+			throws IOException {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Need at least one worker, not " + workers);
+		}
+		if (workers == 1) {
+			for (int nth = 0; nth < count; ++nth) {
+				out.write(LineFormat.format(generate(seed + nth * GOLDEN, clues, difficulty)));
+				out.write('\n');
+			}
+			out.flush();
+			return;
+		}
+
+		// Same bounded reorder window as BatchSolver, so memory stays flat however many we make
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		ArrayDeque<Future<String>> window = new ArrayDeque<Future<String>>(workers * BatchSolver.WINDOW_PER_WORKER);
+		try {
+			for (int nth = 0; nth < count; ++nth) {
+				if (window.size() == workers * BatchSolver.WINDOW_PER_WORKER) {
+					out.write(await(window.removeFirst()));
+				}
+				final long puzzleSeed = seed + nth * GOLDEN;
+				window.addLast(pool.submit(new Callable<String>() {
+					public String call() {
+						return LineFormat.format(generate(puzzleSeed, clues, difficulty)) + '\n';
+					}
+				}));
+			}
+			while (!window.isEmpty()) {
+				out.write(await(window.removeFirst()));
+			}
+			out.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Rate a puzzle by what it takes to solve it.
+	 * @param puzzle left alone
+	 * @return its difficulty
+	 */
+	public Difficulty rate(Puzzle puzzle) {
+		if (singles.deduce(new Puzzle(puzzle))) {
+			return Difficulty.EASY;
+		}
+		return techniques.deduce(new Puzzle(puzzle)) ? Difficulty.MEDIUM : Difficulty.HARD;
+	}
+
+	/**
+	 * @return a random full grid, as alphabet index + 1 per cell
+	 */
+	short[] fullGrid(Random random) {
+		int size = geometry.horz();
+
+		// Any shuffle of the alphabet can go in the first square
+		short[] board = new short[size * size];
+		int[] symbols = shuffled(size, random);
+		for (int nth = 0; nth < size; ++nth) {
+			board[geometry.squareCell(0, nth)] = (short) (symbols[nth] + 1);
+		}
+		Puzzle puzzle = new Puzzle(geometry, board);
+		if (!fill(puzzle, random)) {
+			throw new IllegalStateException("A board with one full square should always fill in");
+		}
+
+		// Rows move within their band and bands move as a whole; the same for columns and stacks
+		int rows = geometry.rowsInSquare();
+		int cols = geometry.columnsInSquare();
+		int[] rowOrder = lines(rows, geometry.numRowSquares(), random);
+		int[] colOrder = lines(cols, geometry.numColSquares(), random);
+		short[] grid = new short[size * size];
+		for (int ii = 0; ii < size; ++ii) {
+			for (int jj = 0; jj < size; ++jj) {
+				grid[ii * size + jj] = (short) (puzzle.symbolAt(rowOrder[ii], colOrder[jj]) + 1);
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Fill in a puzzle by search, trying the possible moves of each cell in random order, so any grid
+	 * that fits the givens can come out.
+	 * @return true if the puzzle is full
+	 */
+	private boolean fill(Puzzle puzzle, Random random) {
+		Solver.Deduction deduction = singles.propagate(puzzle);
+		if (deduction != Solver.Deduction.STUCK) {
+			return deduction == Solver.Deduction.SOLVED;
+		}
+		int best = Solver.chooseCell(puzzle);
+		if (best < 0) {
+			return false;
+		}
+		int[] guesses = new int[puzzle.possibles().size(best)];
+		for (int nth = 0; nth < guesses.length; ++nth) {
+			guesses[nth] = puzzle.possibles().get(best / geometry.vert(), best % geometry.vert(), nth);
+		}
+		for (int order : shuffled(guesses.length, random)) {
+			int mark = puzzle.mark();
+			if (puzzle.updateSquare(best / geometry.vert(), best % geometry.vert(), guesses[order])
+					&& fill(puzzle, random)) {
+				return true;
+			}
+			puzzle.undo(mark);
+		}
+		return false;
+	}
+
+	/**
+	 * Take clues out of a full grid in random order, keeping each out only if the solution stays unique.
+	 */
+	private Puzzle removeClues(short[] grid, int clues, Random random) {
+		int[] order = shuffled(grid.length, random);
+		int left = grid.length;
+		for (int nth = 0; nth < order.length && left > clues; ++nth) {
+			if (removeClue(grid, order[nth])) {
+				left -= 1;
+			}
+		}
+		return new Puzzle(geometry, grid);
+	}
+
+	/**
+	 * Take one clue out if the puzzle stays unique. It was unique with the clue, so it stays unique
+	 * exactly when no solution puts anything else in that cell: one search for a solution that usually
+	 * isn't there, instead of counting solutions from scratch.
+	 * @return true if the clue came out
+	 */
+	private boolean removeClue(short[] grid, int cell) {
+		short clue = grid[cell];
+		grid[cell] = 0;
+		Puzzle rival = new Puzzle(geometry, grid);
+		int index = clue - 1;
+		if (!rival.removePossibles(cell, index / Candidates.WORD_SIZE, 1L << (index % Candidates.WORD_SIZE))
+				|| !links.solve(rival)) {
+			return true;
+		}
+		grid[cell] = clue;
+		return false;
+	}
+
+	/**
+	 * A random order of lines that keeps each group of lines together.
+	 * @param perGroup lines in a band or stack
+	 * @param groups bands or stacks
+	 * @return the original line of every new line
+	 */
+	private static int[] lines(int perGroup, int groups, Random random) {
+		int[] groupOrder = shuffled(groups, random);
+		int[] order = new int[perGroup * groups];
+		for (int group = 0; group < groups; ++group) {
+			int[] within = shuffled(perGroup, random);
+			for (int line = 0; line < perGroup; ++line) {
+				order[group * perGroup + line] = groupOrder[group] * perGroup + within[line];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * @return 0..n-1 in random order
+	 */
+	private static int[] shuffled(int n, Random random) {
+		int[] order = new int[n];
+		for (int ii = 0; ii < n; ++ii) {
+			int jj = random.nextInt(ii + 1);
+			order[ii] = order[jj];
+			order[jj] = ii;
+		}
+		return order;
+	}
+
+	private static String await(Future<String> line) throws IOException {
+		try {
+			return line.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a puzzle");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator that reads one puzzle ahead, for the PuzzleFormats.
+ */
+abstract class PuzzleIterator implements Iterator<Puzzle> {
+
+	private Puzzle next = null;
+	private boolean done = false;
+
+	/**
+	 * @return the next puzzle, or null at the end of the file
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the next puzzle won't parse; the one after can still be read
+	 */
+	protected abstract Puzzle readNext() throws IOException;
+
+	public boolean hasNext() {
+		if (null == next && !done) {
+			try {
+				next = readNext();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			done = (null == next);
+		}
+		return null != next;
+	}
+
+	public Puzzle next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Puzzle puzzle = next;
+		next = null;
+		return puzzle;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
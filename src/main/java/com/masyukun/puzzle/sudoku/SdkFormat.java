@@ -0,0 +1,166 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SudoCue .sdk files: a single board, one row per line. The file can declare the squares and the
+ * alphabet in comments:
+ * <pre>
+ * # geometry 3x4
+ * # symbols A Ab B Bb C C# D E Eb F F# G
+ * </pre>
+ * Otherwise squares are as square as the size allows and the symbols are those of SudokuGeometry.forSize.
+ * Rows are one character a cell, or symbols separated by spaces when they're longer. Blanks are . or 0,
+ * and section headers like [Puzzle] are skipped.
+ */
+public class SdkFormat implements PuzzleFormat {
+
+	public String name() {
+		return "SudoCue .sdk";
+	}
+
+	/**
+	 * A declaration, or as many rows as each row has cells.
+	 */
+	public boolean recognizes(List<String> head) {
+		if (PuzzleFormats.declaresBoard(head)) {
+			return true;
+		}
+		int rows = 0;
+		int size = -1;
+		for (String line : PuzzleFormats.dataLines(head)) {
+			if (!line.startsWith("[")) {
+				int cells = PuzzleFormats.cells(line).length;
+				if (-1 != size && cells != size) {
+					return false;
+				}
+				size = cells;
+				rows += 1;
+			}
+		}
+		return rows > 0 && rows == size;
+	}
+
+	public Iterator<Puzzle> read(final BufferedReader in) {
+		return new PuzzleIterator() {
+			private boolean read = false;
+
+			protected Puzzle readNext() throws IOException {
+				if (read) {
+					return null;
+				}
+				read = true;
+				return parse(in);
+			}
+		};
+	}
+
+	/**
+	 * Read the one board of a file.
+	 * @param in
+	 * @return the puzzle
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the board is messed up
+	 */
+	static Puzzle parse(BufferedReader in) throws IOException {
+		int rowsInSquare = 0;
+		int columnsInSquare = 0;
+		List<String> symbols = null;
+		List<String[]> rows = new ArrayList<String[]>();
+
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+
+			if (line.startsWith("#")) {
+				// Comments, some of which tell us about the board
+				String[] words = line.substring(1).trim().split("\\s+");
+				if (words[0].equalsIgnoreCase("geometry") && words.length == 2) {
+					String[] dims = words[1].toLowerCase().split("x");
+					try {
+						rowsInSquare = Integer.parseInt(dims[0]);
+						columnsInSquare = (dims.length == 2) ? Integer.parseInt(dims[1]) : 0;
+					} catch (NumberFormatException e) {
+						columnsInSquare = 0;
+					}
+					if (rowsInSquare < 1 || columnsInSquare < 1) {
+						throw new IllegalArgumentException(String.format("\"%s\" should look like \"# geometry 3x3\"", line));
+					}
+				} else if (words[0].equalsIgnoreCase("symbols") && words.length > 1) {
+					symbols = Arrays.asList(words).subList(1, words.length);
+				}
+
+			} else if (line.startsWith("[")) {
+				// [Puzzle] and friends; the rows follow
+
+			} else if (line.length() > 0) {
+				String[] row = PuzzleFormats.cells(line);
+				if (!rows.isEmpty() && rows.get(0).length != row.length) {
+					// Puzzle is wibbly-wobbly
+					throw new IllegalArgumentException(String.format("row %d has %d cells, not %d",
+							rows.size() + 1, row.length, rows.get(0).length));
+				}
+				rows.add(row);
+			}
+		}
+
+		// Boards are square, rows and columns alike
+		int size = rows.size();
+		if (size == 0 || size != rows.get(0).length) {
+			throw new IllegalArgumentException(String.format("%d rows of %d cells isn't square",
+					size, (size == 0) ? 0 : rows.get(0).length));
+		}
+
+		String[][] grid = Puzzle.gridFactory(size, size);
+		for (int ii = 0; ii < size; ++ii) {
+			String[] row = rows.get(ii);
+			for (int jj = 0; jj < size; ++jj) {
+				// Ignore blanks
+				if (!row[jj].equals(".") && !row[jj].equals("0")) {
+					grid[ii][jj] = row[jj];
+				}
+			}
+		}
+		return new Puzzle(geometry(size, rowsInSquare, columnsInSquare, symbols), grid);
+	}
+
+	/**
+	 * Fill in whatever a file didn't declare from SudokuGeometry.forSize.
+	 * @param size N of an NxN board
+	 * @param rowsInSquare 0 if undeclared
+	 * @param columnsInSquare 0 if undeclared
+	 * @param symbols null if undeclared
+	 * @return the geometry
+	 * @throws IllegalArgumentException if the declared squares don't tile the board
+	 */
+	static SudokuGeometry geometry(int size, int rowsInSquare, int columnsInSquare, List<String> symbols) {
+		SudokuGeometry guess = SudokuGeometry.forSize(size);
+		if (0 == rowsInSquare && null == symbols) {
+			return guess;
+		}
+		SudokuGeometry geometry = new SudokuGeometry(
+				(0 == rowsInSquare) ? guess.rowsInSquare() : rowsInSquare,
+				(0 == columnsInSquare) ? guess.columnsInSquare() : columnsInSquare,
+				(null == symbols) ? guess.numbers() : symbols);
+		if (geometry.horz() != size) {
+			throw new IllegalArgumentException(String.format("%dx%d squares don't tile a %dx%d board",
+					geometry.rowsInSquare(), geometry.columnsInSquare(), size, size));
+		}
+		return geometry;
+	}
+}
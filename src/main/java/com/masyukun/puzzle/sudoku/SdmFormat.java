@@ -0,0 +1,82 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SudoCue .sdm files, and every other file of one-line puzzles: one puzzle per line in LineFormat.
+ * Blank lines and # comments are skipped. Lines are read as the puzzles are asked for.
+ */
+public class SdmFormat implements PuzzleFormat {
+
+	public String name() {
+		return "SudoCue .sdm";
+	}
+
+	/**
+	 * The first line is a square number of cells with no spaces, and nothing says the file is a board:
+	 * no declaration, no [Puzzle] header, and either every line reads as a puzzle of its own or the
+	 * lines don't make a square board. N lines of N cells that are all puzzles are N puzzles.
+	 */
+	public boolean recognizes(List<String> head) {
+		List<String> data = PuzzleFormats.dataLines(head);
+		if (data.isEmpty() || PuzzleFormats.declaresBoard(head)) {
+			return false;
+		}
+		String first = data.get(0);
+		int cells = first.length();
+		int size = (int) Math.round(Math.sqrt(cells));
+		if (size < 2 || size * size != cells || first.indexOf(' ') >= 0 || first.indexOf('\t') >= 0) {
+			return false;
+		}
+		boolean puzzles = true;
+		boolean square = (data.size() == cells);
+		for (String line : data) {
+			if (line.startsWith("[")) {
+				return false;
+			}
+			square &= (line.length() == cells);
+			puzzles &= isPuzzle(line);
+		}
+		return puzzles || !square;
+	}
+
+	/**
+	 * @return true if the line reads as a puzzle of its own
+	 */
+	private static boolean isPuzzle(String line) {
+		try {
+			LineFormat.parse(line);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	public Iterator<Puzzle> read(final BufferedReader in) {
+		return new PuzzleIterator() {
+			protected Puzzle readNext() throws IOException {
+				String line;
+				while ((line = in.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0 && line.charAt(0) != '#') {
+						return LineFormat.parse(line);
+					}
+				}
+				return null;
+			}
+		};
+	}
+}
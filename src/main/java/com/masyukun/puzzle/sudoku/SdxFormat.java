@@ -0,0 +1,101 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SudoCue .sdx files: a single board, one row per line, cells separated by spaces. A cell is a given
+ * symbol, a u and the symbol the player put there, or the run of candidates left in a blank cell.
+ * Played symbols are read as givens; candidates are dropped, since the solver works its own out.
+ */
+public class SdxFormat implements PuzzleFormat {
+
+	public String name() {
+		return "SudoCue .sdx";
+	}
+
+	/**
+	 * A square board of one-character symbols with u markers or candidate runs among them, which
+	 * no .sdk file has.
+	 */
+	public boolean recognizes(List<String> head) {
+		if (PuzzleFormats.declaresBoard(head)) {
+			return false;
+		}
+		List<String> data = PuzzleFormats.dataLines(head);
+		int size = data.size();
+		if (size < 2 || size > SudokuGeometry.DEFAULT_SYMBOLS.length()) {
+			return false;
+		}
+		String alphabet = SudokuGeometry.DEFAULT_SYMBOLS.substring(0, size);
+		boolean marked = false;
+		for (String line : data) {
+			String[] row = line.split("\\s+");
+			if (row.length != size) {
+				return false;
+			}
+			for (String cell : row) {
+				String symbols = (cell.length() > 1 && cell.charAt(0) == 'u') ? cell.substring(1) : cell;
+				for (int nn = 0; nn < symbols.length(); ++nn) {
+					if (alphabet.indexOf(symbols.charAt(nn)) < 0 && !LineFormat.isBlank(symbols.charAt(nn))) {
+						return false;
+					}
+				}
+				marked |= cell.length() > 1;
+			}
+		}
+		return marked;
+	}
+
+	public Iterator<Puzzle> read(final BufferedReader in) {
+		return new PuzzleIterator() {
+			private boolean read = false;
+
+			protected Puzzle readNext() throws IOException {
+				if (read) {
+					return null;
+				}
+				read = true;
+
+				List<String[]> rows = new ArrayList<String[]>();
+				String line;
+				while ((line = in.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0 && line.charAt(0) != '#') {
+						rows.add(line.split("\\s+"));
+					}
+				}
+				StringBuilder cells = new StringBuilder(rows.size() * rows.size());
+				for (int ii = 0; ii < rows.size(); ++ii) {
+					if (rows.get(ii).length != rows.size()) {
+						throw new IllegalArgumentException(String.format("row %d has %d cells, not %d",
+								ii + 1, rows.get(ii).length, rows.size()));
+					}
+					for (String cell : rows.get(ii)) {
+						if (cell.length() == 1) {
+							cells.append(cell.charAt(0));
+						} else if (cell.length() == 2 && cell.charAt(0) == 'u') {
+							cells.append(cell.charAt(1));
+						} else {
+							cells.append('.');
+						}
+					}
+				}
+				return LineFormat.parse(cells);
+			}
+		};
+	}
+}
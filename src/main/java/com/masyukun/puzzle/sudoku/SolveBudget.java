@@ -0,0 +1,183 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on one solve: a wall-clock timeout, a number of search nodes, and a length of undo trail --
+ * the moves and strikes a solve has to remember to back out, which is what its memory grows with.
+ * Budgets are immutable; start from UNLIMITED and add the limits you want:
+ * <pre>
+ * SolveBudget.UNLIMITED.withTimeout(50, TimeUnit.MILLISECONDS).withMaxNodes(100000)
+ * </pre>
+ */
+public final class SolveBudget {
+
+	/** No limits at all */
+	public static final SolveBudget UNLIMITED = new SolveBudget(0L, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+	/** The clock is only read every this many nodes; a node is a few microseconds at least */
+	static final int CLOCK_EVERY = 16;
+
+	private final long timeoutNanos;
+	private final long maxNodes;
+	private final int maxTrail;
+
+	private SolveBudget(long timeoutNanos, long maxNodes, int maxTrail) {
+		this.timeoutNanos = timeoutNanos;
+		this.maxNodes = maxNodes;
+		this.maxTrail = maxTrail;
+	}
+
+	/**
+	 * @param time how long a solve may take, from when it starts
+	 * @param unit
+	 * @return this budget with a timeout
+	 */
+	public SolveBudget withTimeout(long time, TimeUnit unit) {
+		if (time < 1) {
+			throw new IllegalArgumentException("A timeout needs some time, not " + time);
+		}
+		return new SolveBudget(unit.toNanos(time), maxNodes, maxTrail);
+	}
+
+	/**
+	 * @param nodes most search nodes a solve may visit
+	 * @return this budget with a node limit
+	 */
+	public SolveBudget withMaxNodes(long nodes) {
+		if (nodes < 1) {
+			throw new IllegalArgumentException("A solve needs at least one node, not " + nodes);
+		}
+		return new SolveBudget(timeoutNanos, nodes, maxTrail);
+	}
+
+	/**
+	 * @param entries longest undo trail a solve may build
+	 * @return this budget with a trail limit
+	 */
+	public SolveBudget withMaxTrail(int entries) {
+		if (entries < 1) {
+			throw new IllegalArgumentException("A solve needs some trail, not " + entries);
+		}
+		return new SolveBudget(timeoutNanos, maxNodes, entries);
+	}
+
+	/** @return the timeout, or 0 for none */
+	public long timeoutNanos() {
+		return timeoutNanos;
+	}
+
+	public long maxNodes() {
+		return maxNodes;
+	}
+
+	public int maxTrail() {
+		return maxTrail;
+	}
+
+	/**
+	 * Start spending this budget on one solve.
+	 */
+	Meter start(CancellationToken token) {
+		return new Meter(this, token);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s, %s nodes, %s trail",
+				(timeoutNanos == 0) ? "no timeout" : String.format("%.3f ms", timeoutNanos / 1e6),
+				(maxNodes == Long.MAX_VALUE) ? "unlimited" : String.valueOf(maxNodes),
+				(maxTrail == Integer.MAX_VALUE) ? "unlimited" : String.valueOf(maxTrail));
+	}
+
+	/**
+	 * What one solve has spent so far. Belongs to the thread doing the solve; only the token, and the
+	 * node count of a shared meter and its forks, are shared.
+	 */
+	static final class Meter {
+		private final boolean timed;
+		private final long deadline;
+		private final long maxNodes;
+		private final int maxTrail;
+		private final CancellationToken token;
+		/** Nodes paid by every fork of a shared meter, or null if this meter pays alone */
+		private final AtomicLong shared;
+		private long nodes = 0;
+		private SolveStatus stopped = null;
+
+		Meter(SolveBudget budget, CancellationToken token) {
+			this(budget.timeoutNanos > 0, System.nanoTime() + budget.timeoutNanos, budget.maxNodes, budget.maxTrail,
+					token, null);
+		}
+
+		private Meter(boolean timed, long deadline, long maxNodes, int maxTrail, CancellationToken token, AtomicLong shared) {
+			this.timed = timed;
+			this.deadline = deadline;
+			this.maxNodes = maxNodes;
+			this.maxTrail = maxTrail;
+			this.token = token;
+			this.shared = shared;
+		}
+
+		/**
+		 * A meter for a solve spread over many threads: same deadline and token, and a node count that it
+		 * and all its forks pay into together. Fork it once per thread; the shared meter itself isn't paid.
+		 */
+		Meter share() {
+			return new Meter(timed, deadline, maxNodes, maxTrail, token, new AtomicLong(nodes));
+		}
+
+		/**
+		 * A fresh meter for another thread working on the same solve: same deadline and token. It counts
+		 * nodes on its own, unless this meter is shared, in which case it pays into the same count.
+		 */
+		Meter fork() {
+			return new Meter(timed, deadline, maxNodes, maxTrail, token, shared);
+		}
+
+		/**
+		 * Pay for one search node.
+		 * @param trail how long the undo trail is now
+		 * @return false once the solve should give up
+		 */
+		boolean node(int trail) {
+			if (null != stopped) {
+				return false;
+			}
+			nodes += 1;
+			long spent = (null == shared) ? nodes : shared.incrementAndGet();
+			if (token.isCancelled()) {
+				stopped = SolveStatus.CANCELLED;
+			} else if (spent > maxNodes || trail > maxTrail) {
+				stopped = SolveStatus.TIMEOUT;
+			} else if (timed && nodes % CLOCK_EVERY == 1 && System.nanoTime() - deadline > 0) {
+				stopped = SolveStatus.TIMEOUT;
+			}
+			return null == stopped;
+		}
+
+		/** @return search nodes paid for by this meter, or by all the forks of a shared one */
+		long nodes() {
+			return (null == shared) ? nodes : shared.get();
+		}
+
+		/**
+		 * @param solved whether the solve filled the board
+		 * @return how it ended
+		 */
+		SolveStatus status(boolean solved) {
+			return solved ? SolveStatus.SOLVED : (null == stopped) ? SolveStatus.UNSOLVED : stopped;
+		}
+	}
+}
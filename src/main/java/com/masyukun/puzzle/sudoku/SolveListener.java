@@ -0,0 +1,80 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * Hears about every move a Solver makes, for narrating or tracing a solve.
+ * A Solver may work on many puzzles from many threads at once, and so may its listener.
+ */
+public interface SolveListener {
+
+	/** Hears nothing, says nothing; the default, and free */
+	SolveListener NONE = new SolveListener() {
+		public void played(Puzzle puzzle, int ii, int jj, int index, String technique, boolean consistent) {
+		}
+
+		public void narrowed(Puzzle puzzle, String technique) {
+		}
+
+		public void backtracked(Puzzle puzzle, int ii, int jj, int index) {
+		}
+
+		public void searched(Puzzle puzzle, int depth) {
+		}
+
+		public void timed(Puzzle puzzle, String phase, int steps, long nanos) {
+		}
+	};
+
+	/**
+	 * A symbol was played.
+	 * @param puzzle after the move
+	 * @param ii row
+	 * @param jj column
+	 * @param index alphabet index of the symbol
+	 * @param technique how it was found, e.g. "oneline" or "guess"
+	 * @param consistent false if the move left a cell with no possible moves
+	 */
+	void played(Puzzle puzzle, int ii, int jj, int index, String technique, boolean consistent);
+
+	/**
+	 * A technique struck some possible moves without playing anything.
+	 * @param puzzle after the strike
+	 * @param technique its name
+	 */
+	void narrowed(Puzzle puzzle, String technique);
+
+	/**
+	 * A guess led nowhere and was taken back.
+	 * @param puzzle after the undo
+	 * @param ii row
+	 * @param jj column
+	 * @param index alphabet index of the symbol
+	 */
+	void backtracked(Puzzle puzzle, int ii, int jj, int index);
+
+	/**
+	 * The search reached a node of its tree.
+	 * @param puzzle as it stands at the node
+	 * @param depth number of guesses on the stack
+	 */
+	void searched(Puzzle puzzle, int depth);
+
+	/**
+	 * One run of a solving phase finished. Only sent to listeners other than NONE, so NONE never pays for the clock.
+	 * @param puzzle
+	 * @param phase "propagation" for a sweep of the singles queue, else a technique name
+	 * @param steps units looked at by a sweep; 1 if a technique struck something, else 0
+	 * @param nanos time it took
+	 */
+	void timed(Puzzle puzzle, String phase, int steps, long nanos);
+}
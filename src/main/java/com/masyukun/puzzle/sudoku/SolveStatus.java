@@ -0,0 +1,25 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+/**
+ * How a budgeted solve ended.
+ */
+public enum SolveStatus {
+	/** Every cell is filled */
+	SOLVED,
+	/** The whole search ran and found nothing; the puzzle has no solution */
+	UNSOLVED,
+	/** The solve ran out of time, search nodes or trail before it could finish */
+	TIMEOUT,
+	/** Someone tripped the CancellationToken */
+	CANCELLED
+}
@@ -0,0 +1,524 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plays logical moves on a Puzzle until it is solved or nothing more can be deduced, then guesses.
+ * Guesses are made depth-first on the cell with the fewest possible moves and taken back through the
+ * puzzle's undo trail when they lead nowhere.
+ * A Solver holds no per-puzzle state, so one instance can work on many puzzles from many threads at once.
+ */
+public class Solver implements Engine {
+
+	private final SolveListener listener;
+	/** Only bother with the clock when someone's listening */
+	private final boolean timed;
+	private final List<Technique> techniques;
+
+	/**
+	 * A quiet solver.
+	 */
+	public Solver() {
+		this(SolveListener.NONE);
+	}
+
+	/**
+	 * A solver with the standard techniques.
+	 * @param verbose print every move to System.out
+	 */
+	public Solver(boolean verbose) {
+		this(verbose ? new ConsoleListener() : SolveListener.NONE);
+	}
+
+	/**
+	 * A solver with the standard techniques.
+	 * @param listener hears about every move
+	 */
+	public Solver(SolveListener listener) {
+		this(listener, standardTechniques());
+	}
+
+	/**
+	 * @param listener hears about every move
+	 * @param techniques tried in order, after singles, whenever singles run dry; cheapest first pays best
+	 */
+	public Solver(SolveListener listener, List<Technique> techniques) {
+		this.listener = listener;
+		this.timed = listener != SolveListener.NONE;
+		this.techniques = Collections.unmodifiableList(new ArrayList<Technique>(techniques));
+	}
+
+	/**
+	 * @return every technique we know, cheapest first: intersections, then subsets from pairs up to quads
+	 */
+	public static List<Technique> standardTechniques() {
+		return Arrays.<Technique>asList(
+				new PointingTechnique(),
+				new BoxLineTechnique(),
+				new NakedSubsetTechnique(2),
+				new HiddenSubsetTechnique(2),
+				new NakedSubsetTechnique(3),
+				new HiddenSubsetTechnique(3),
+				new NakedSubsetTechnique(4),
+				new HiddenSubsetTechnique(4));
+	}
+
+	/**
+	 * Play moves until the puzzle is solved, guessing when logic runs dry.
+	 * @param puzzle
+	 * @return true if the puzzle is solved; false if it has no solution, in which case it is left
+	 *         with only the logical moves played, or if its givens already clash
+	 */
+	public boolean solve(Puzzle puzzle) {
+		return !puzzle.hasConflicts() && search(puzzle, 0, SolveBudget.UNLIMITED.start(CancellationToken.NONE));
+	}
+
+	/**
+	 * The budget is checked at every search node; deducing between nodes isn't interrupted.
+	 * Clashing givens are turned away before the search starts.
+	 * @see Engine#solve(Puzzle, SolveBudget, CancellationToken)
+	 */
+	public SolveStatus solve(Puzzle puzzle, SolveBudget budget, CancellationToken token) {
+		if (puzzle.hasConflicts()) {
+			// Singles only look at empty cells, so the search would never see the clash
+			return SolveStatus.UNSOLVED;
+		}
+		SolveBudget.Meter meter = budget.start(token);
+		return meter.status(search(puzzle, 0, meter));
+	}
+
+	/**
+	 * How a round of deduction ended.
+	 */
+	enum Deduction {
+		/** Every cell is filled */
+		SOLVED,
+		/** Logic has run dry; time to guess */
+		STUCK,
+		/** Some cell can take nothing, or some symbol has nowhere to go in a unit */
+		CONTRADICTION
+	}
+
+	/**
+	 * Play logical moves until the puzzle is solved or stuck, without guessing.
+	 * @param puzzle
+	 * @return true if the puzzle is solved
+	 * @see #propagate(Puzzle)
+	 */
+	public boolean deduce(Puzzle puzzle) {
+		return propagate(puzzle) == Deduction.SOLVED;
+	}
+
+	/**
+	 * Play logical moves until the puzzle is solved, stuck or broken, without guessing.
+	 * Works through the puzzle's queue of changed units rather than rescanning the board after every
+	 * move: each move queues the units it touched, and the sweep stops when the queue runs dry.
+	 * Then the techniques get a turn, and any that strikes something sends us back to the queue.
+	 * @param puzzle
+	 * @return how it ended; a search should back out of a CONTRADICTION rather than guess below it
+	 */
+	Deduction propagate(Puzzle puzzle) {
+		do {
+			long started = timed ? System.nanoTime() : 0L;
+			int units = 0;
+			boolean consistent = true;
+			int unit;
+			while (consistent && (unit = puzzle.nextDirtyUnit()) >= 0) {
+				units += 1;
+				consistent = solveUnit(puzzle, unit);
+			}
+			if (timed) {
+				listener.timed(puzzle, "propagation", units, System.nanoTime() - started);
+			}
+			if (!consistent) {
+				return Deduction.CONTRADICTION;
+			}
+		} while (!puzzle.isSolved() && applyTechnique(puzzle));
+
+		return puzzle.isSolved() ? Deduction.SOLVED : Deduction.STUCK;
+	}
+
+	/**
+	 * Run the first technique that gets anywhere.
+	 * @return true if one struck something
+	 */
+	private boolean applyTechnique(Puzzle puzzle) {
+		if (puzzle.possibles().words() > 1) {
+			// The techniques work on one-word masks; past 64 symbols it's singles and search
+			return false;
+		}
+		for (Technique technique : techniques) {
+			long started = timed ? System.nanoTime() : 0L;
+			boolean struck = technique.apply(puzzle);
+			if (timed) {
+				listener.timed(puzzle, technique.name(), struck ? 1 : 0, System.nanoTime() - started);
+			}
+			if (struck) {
+				listener.narrowed(puzzle, technique.name());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Play every single in one unit: symbols with one cell left to go, then cells with one possible move left.
+	 * @param puzzle
+	 * @param unit numbered as in SudokuGeometry.unitCell
+	 * @return false if the unit has hit a contradiction
+	 */
+	boolean solveUnit(Puzzle puzzle, int unit) {
+		if (puzzle.possibles().words() > 1) {
+			return solveWideUnit(puzzle, unit);
+		}
+		if (playHiddenSingles(puzzle, unit) < 0) {
+			return false;
+		}
+
+		SudokuGeometry geometry = puzzle.geometry();
+		int size = geometry.horz();
+		for (int nth = 0; nth < size; ++nth) {
+			int cell = geometry.unitCell(unit, nth);
+			long mask = puzzle.possibles().mask(cell);
+			if (Long.bitCount(mask) == 1 && puzzle.isEmpty(cell)
+					&& !play(puzzle, cell / size, cell % size, Long.numberOfTrailingZeros(mask), "oneline")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * solveUnit for alphabets over 64 symbols, a word at a time. Symbols in different words never
+	 * meet, so each word gets its own once and twice.
+	 */
+	private boolean solveWideUnit(Puzzle puzzle, int unit) {
+		SudokuGeometry geometry = puzzle.geometry();
+		Candidates poss = puzzle.possibles();
+		int size = geometry.horz();
+		int symbols = geometry.numbers().size();
+		String technique = (unit < size) ? "horz exclusion" : (unit < 2 * size) ? "vert exclusion" : "square exclusion";
+
+		for (int word = 0; word < poss.words(); ++word) {
+			long placed = 0L;
+			long once = 0L;
+			long twice = 0L;
+			for (int nth = 0; nth < size; ++nth) {
+				int cell = geometry.unitCell(unit, nth);
+				if (!puzzle.isEmpty(cell)) {
+					int index = puzzle.symbolAt(cell);
+					placed |= (index / Candidates.WORD_SIZE == word) ? 1L << index : 0L;
+					continue;
+				}
+				long mask = poss.word(cell, word);
+				twice |= once & mask;
+				once |= mask;
+			}
+			if ((placed | once) != Candidates.fullWord(symbols, word)) {
+				return false;
+			}
+
+			long hidden = once & ~twice & ~placed;
+			while (hidden != 0) {
+				long bit = hidden & -hidden;
+				hidden &= hidden - 1;
+
+				int cell = -1;
+				for (int nth = 0; nth < size && cell < 0; ++nth) {
+					if ((poss.word(geometry.unitCell(unit, nth), word) & bit) != 0) {
+						cell = geometry.unitCell(unit, nth);
+					}
+				}
+				if (cell < 0 || !play(puzzle, cell / size, cell % size,
+						word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(bit), technique)) {
+					return false;
+				}
+			}
+		}
+
+		for (int nth = 0; nth < size; ++nth) {
+			int cell = geometry.unitCell(unit, nth);
+			if (puzzle.isEmpty(cell)) {
+				int left = poss.size(cell);
+				if (left == 0
+						|| (left == 1 && !play(puzzle, cell / size, cell % size, poss.get(cell / size, cell % size, 0), "oneline"))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Play every symbol that has only one cell left in a unit. Counts where each symbol can go in a
+	 * single pass over the unit: a bit in once for the first cell that can take it, a bit in twice for
+	 * any after that.
+	 * @param puzzle
+	 * @param unit numbered as in SudokuGeometry.unitCell
+	 * @return number of moves played, or -1 if the unit has an empty cell with no possible moves or a
+	 *         symbol with nowhere to go
+	 */
+	private int playHiddenSingles(Puzzle puzzle, int unit) {
+		SudokuGeometry geometry = puzzle.geometry();
+		Candidates poss = puzzle.possibles();
+		int size = geometry.horz();
+
+		long placed = 0L;
+		long once = 0L;
+		long twice = 0L;
+		for (int nth = 0; nth < size; ++nth) {
+			int cell = geometry.unitCell(unit, nth);
+			if (!puzzle.isEmpty(cell)) {
+				placed |= 1L << puzzle.symbolAt(cell);
+				continue;
+			}
+			long mask = poss.mask(cell);
+			if (mask == 0) {
+				return -1;
+			}
+			twice |= once & mask;
+			once |= mask;
+		}
+		if ((placed | once) != geometry.allSymbols()) {
+			return -1;
+		}
+
+		String technique = (unit < size) ? "horz exclusion" : (unit < 2 * size) ? "vert exclusion" : "square exclusion";
+		int moves = 0;
+		long hidden = once & ~twice & ~placed;
+		while (hidden != 0) {
+			long bit = hidden & -hidden;
+			hidden &= hidden - 1;
+
+			// Find its cell; gone means an earlier single took the only cell it had
+			int cell = -1;
+			for (int nth = 0; nth < size && cell < 0; ++nth) {
+				if ((poss.mask(geometry.unitCell(unit, nth)) & bit) != 0) {
+					cell = geometry.unitCell(unit, nth);
+				}
+			}
+			if (cell < 0 || !play(puzzle, cell / size, cell % size, Long.numberOfTrailingZeros(bit), technique)) {
+				return -1;
+			}
+			moves += 1;
+		}
+		return moves;
+	}
+
+	/**
+	 * Count solutions with the same deduce-then-guess search that solve uses, backing out of every
+	 * branch through the undo trail. Stops as soon as the limit is reached.
+	 * @param puzzle left as it was found
+	 * @param limit stop counting here; at least 1
+	 * @return the number of solutions, or limit if there are at least that many
+	 */
+	public int countSolutions(Puzzle puzzle, int limit) {
+		return countSolutions(puzzle, limit, SolveBudget.UNLIMITED, CancellationToken.NONE);
+	}
+
+	/**
+	 * The budget is checked at every search node, as in solve.
+	 * @see Engine#countSolutions(Puzzle, int, SolveBudget, CancellationToken)
+	 */
+	public int countSolutions(Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Counting to " + limit + " is no count at all");
+		}
+		if (puzzle.hasConflicts()) {
+			return 0;
+		}
+		SolveBudget.Meter meter = budget.start(token);
+		int mark = puzzle.mark();
+		int found = count(puzzle, 0, limit, meter);
+		puzzle.undo(mark);
+		return (found >= limit || meter.status(false) == SolveStatus.UNSOLVED) ? found : -1;
+	}
+
+	/**
+	 * @return solutions below this node, up to limit; a short count once the meter says to give up
+	 */
+	private int count(Puzzle puzzle, int depth, int limit, SolveBudget.Meter meter) {
+		if (!meter.node(puzzle.mark())) {
+			return 0;
+		}
+		listener.searched(puzzle, depth);
+		Deduction deduction = propagate(puzzle);
+		if (deduction != Deduction.STUCK) {
+			return (deduction == Deduction.SOLVED) ? 1 : 0;
+		}
+
+		int best = chooseCell(puzzle);
+		if (best < 0) {
+			return 0;
+		}
+		int bestRow = best / puzzle.geometry().vert();
+		int bestCol = best % puzzle.geometry().vert();
+
+		int found = 0;
+		for (int word = 0; word < puzzle.possibles().words() && found < limit; ++word) {
+			long guesses = puzzle.possibles().word(best, word);
+			while (guesses != 0 && found < limit) {
+				int index = word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(guesses);
+				guesses &= guesses - 1;
+
+				int mark = puzzle.mark();
+				if (play(puzzle, bestRow, bestCol, index, "guess")) {
+					found += count(puzzle, depth + 1, limit - found, meter);
+				}
+				puzzle.undo(mark);
+				listener.backtracked(puzzle, bestRow, bestCol, index);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Depth-first search. Deduce what we can, then branch on the empty cell with the fewest possible
+	 * moves (minimum remaining values), undoing each failed branch back to its bookmark.
+	 * Gives up, undoing everything, as soon as the meter says so.
+	 * @param puzzle
+	 * @param depth number of guesses on the stack
+	 * @param meter paid at every node
+	 * @return true if the puzzle is solved
+	 */
+	boolean search(Puzzle puzzle, int depth, SolveBudget.Meter meter) {
+		if (!meter.node(puzzle.mark())) {
+			return false;
+		}
+		listener.searched(puzzle, depth);
+		Deduction deduction = propagate(puzzle);
+		if (deduction != Deduction.STUCK) {
+			return deduction == Deduction.SOLVED;
+		}
+
+		int best = chooseCell(puzzle);
+		if (best < 0) {
+			// Dead end, some empty cell can't take anything
+			return false;
+		}
+		int bestRow = best / puzzle.geometry().vert();
+		int bestCol = best % puzzle.geometry().vert();
+
+		// Try each of its possibles in turn
+		for (int word = 0; word < puzzle.possibles().words(); ++word) {
+			long guesses = puzzle.possibles().word(best, word);
+			while (guesses != 0) {
+				int index = word * Candidates.WORD_SIZE + Long.numberOfTrailingZeros(guesses);
+				guesses &= guesses - 1;
+
+				int mark = puzzle.mark();
+				if (play(puzzle, bestRow, bestCol, index, "guess")
+						&& search(puzzle, depth + 1, meter)) {
+					return true;
+				}
+				puzzle.undo(mark);
+				listener.backtracked(puzzle, bestRow, bestCol, index);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Pick the most constrained empty cell to branch on.
+	 * @param puzzle an unsolved puzzle
+	 * @return the cell as row * vert + column, or -1 if some empty cell has no possible moves left
+	 */
+	static int chooseCell(Puzzle puzzle) {
+		Candidates poss = puzzle.possibles();
+		int best = -1;
+		int bestSize = Integer.MAX_VALUE;
+		for (int ii = 0; ii < poss.horz() && bestSize > 1; ++ii) {
+			for (int jj = 0; jj < poss.vert(); ++jj) {
+				if (puzzle.isEmpty(ii, jj) && poss.size(ii, jj) < bestSize) {
+					best = ii * poss.vert() + jj;
+					bestSize = poss.size(ii, jj);
+					if (bestSize <= 1) break;
+				}
+			}
+		}
+		return (bestSize == 0) ? -1 : best;
+	}
+
+	/**
+	 * Solve the easy ones -- where there's only 1 possibility
+	 * @param puzzle
+	 * @return true when it solved something
+	 */
+	public boolean solveSingles(Puzzle puzzle) {
+		Candidates poss = puzzle.possibles();
+		boolean solvedSomething = false;
+
+		for (int ii = 0; ii < poss.horz(); ++ii) {
+			for (int jj = 0; jj < poss.vert(); ++jj) {
+				if (poss.size(ii, jj) == 1) {
+					// Solved it! Check out my hook while updateSquare resolves it.
+					play(puzzle, ii, jj, poss.get(ii, jj, 0), "oneline");
+					solvedSomething = true;
+					break;
+				}
+			}
+			if (solvedSomething) break;
+		}
+
+
+		return solvedSomething;
+	}
+
+	/**
+	 * Sort of meta... Looks through the possibles matrix for values unique within their domain (horz, vert, square)
+	 * and plays them.
+	 * @param puzzle
+	 * @return boolean true if it found something
+	 */
+	public boolean solveExclusions(Puzzle puzzle) {
+		boolean solvedIt = false;
+
+		if (puzzle.possibles().words() > 1) {
+			// The wide sweep plays its naked singles too; anything on the trail counts
+			int mark = puzzle.mark();
+			for (int unit = 0; unit < puzzle.geometry().unitCount(); ++unit) {
+				if (!solveWideUnit(puzzle, unit)) {
+					// Contradiction, nothing more to find here
+					break;
+				}
+			}
+			return puzzle.mark() != mark;
+		}
+
+		for (int unit = 0; unit < puzzle.geometry().unitCount(); ++unit) {
+			int moves = playHiddenSingles(puzzle, unit);
+			if (moves < 0) {
+				// Contradiction, nothing more to find here
+				break;
+			}
+			solvedIt |= moves > 0;
+		}
+
+
+		return solvedIt;
+	}
+
+	/**
+	 * Play one deduced move, telling the listener about it.
+	 * @return false if the move left a cell with no possible moves
+	 */
+	private boolean play(Puzzle puzzle, int ii, int jj, int index, String technique) {
+		boolean consistent = puzzle.updateSquare(ii, jj, index);
+		listener.played(puzzle, ii, jj, index, technique, consistent);
+		return consistent;
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what a Solver does: placements by technique, runs, steps and time of every phase, search nodes,
+ * backtracks and the deepest guess. Listen with it to see where the solve time goes.
+ * Counters are LongAdders, so any number of solving threads can share one SolverMetrics cheaply.
+ */
+public class SolverMetrics implements SolveListener, SolverMetricsMBean {
+
+	/** Name we register under with the platform MBean server */
+	public static final String OBJECT_NAME = "com.masyukun.puzzle.sudoku:type=SolverMetrics";
+
+	private final ConcurrentMap<String, LongAdder> placements = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentMap<String, LongAdder> phaseRuns = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentMap<String, LongAdder> phaseSteps = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentMap<String, LongAdder> phaseNanos = new ConcurrentHashMap<String, LongAdder>();
+	private final LongAdder searchNodes = new LongAdder();
+	private final LongAdder backtracks = new LongAdder();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	public void played(Puzzle puzzle, int ii, int jj, int index, String technique, boolean consistent) {
+		counter(placements, technique).increment();
+	}
+
+	public void narrowed(Puzzle puzzle, String technique) {
+		// Already counted as a step by timed
+	}
+
+	public void backtracked(Puzzle puzzle, int ii, int jj, int index) {
+		backtracks.increment();
+	}
+
+	public void searched(Puzzle puzzle, int depth) {
+		searchNodes.increment();
+		int deepest = maxDepth.get();
+		while (depth > deepest && !maxDepth.compareAndSet(deepest, depth)) {
+			deepest = maxDepth.get();
+		}
+	}
+
+	public void timed(Puzzle puzzle, String phase, int steps, long nanos) {
+		counter(phaseRuns, phase).increment();
+		counter(phaseSteps, phase).add(steps);
+		counter(phaseNanos, phase).add(nanos);
+	}
+
+	public Map<String, Long> getPlacements() {
+		return snapshot(placements);
+	}
+
+	public Map<String, Long> getPhaseRuns() {
+		return snapshot(phaseRuns);
+	}
+
+	public Map<String, Long> getPhaseSteps() {
+		return snapshot(phaseSteps);
+	}
+
+	public Map<String, Long> getPhaseNanos() {
+		return snapshot(phaseNanos);
+	}
+
+	public long getSearchNodes() {
+		return searchNodes.sum();
+	}
+
+	public long getBacktracks() {
+		return backtracks.sum();
+	}
+
+	public int getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	public void reset() {
+		placements.clear();
+		phaseRuns.clear();
+		phaseSteps.clear();
+		phaseNanos.clear();
+		searchNodes.reset();
+		backtracks.reset();
+		maxDepth.set(0);
+	}
+
+	/**
+	 * Show these metrics over JMX under OBJECT_NAME, replacing whatever was there.
+	 * @throws JMException if the platform MBean server won't have it
+	 */
+	public void register() throws JMException {
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+	}
+
+	private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String name) {
+		LongAdder counter = counters.get(name);
+		if (null == counter) {
+			LongAdder fresh = new LongAdder();
+			counter = counters.putIfAbsent(name, fresh);
+			if (null == counter) {
+				counter = fresh;
+			}
+		}
+		return counter;
+	}
+
+	private static Map<String, Long> snapshot(ConcurrentMap<String, LongAdder> counters) {
+		Map<String, Long> copy = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			copy.put(counter.getKey(), counter.getValue().sum());
+		}
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder(String.format("search: %d nodes, %d backtracks, max depth %d",
+				getSearchNodes(), getBacktracks(), getMaxDepth()));
+		for (Map.Entry<String, Long> placed : getPlacements().entrySet()) {
+			report.append(String.format("%n  %s placed %d", placed.getKey(), placed.getValue()));
+		}
+		Map<String, Long> phases = getPhaseRuns();
+		Map<String, Long> steps = getPhaseSteps();
+		Map<String, Long> nanos = getPhaseNanos();
+		for (Map.Entry<String, Long> runs : phases.entrySet()) {
+			report.append(String.format("%n  %s ran %d times, %d steps, %.3f ms", runs.getKey(), runs.getValue(),
+					steps.getOrDefault(runs.getKey(), 0L), nanos.getOrDefault(runs.getKey(), 0L) / 1e6));
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.util.Map;
+
+/**
+ * What SolverMetrics shows over JMX.
+ */
+public interface SolverMetricsMBean {
+
+	/** @return symbols played, by technique ("oneline", "horz exclusion", ..., "guess") */
+	Map<String, Long> getPlacements();
+
+	/** @return runs of each phase: "propagation" sweeps and technique tries */
+	Map<String, Long> getPhaseRuns();
+
+	/** @return units swept by propagation, or tries of a technique that struck something */
+	Map<String, Long> getPhaseSteps();
+
+	/** @return time spent in each phase */
+	Map<String, Long> getPhaseNanos();
+
+	long getSearchNodes();
+
+	long getBacktracks();
+
+	int getMaxDepth();
+
+	/** Start counting from zero again */
+	void reset();
+}
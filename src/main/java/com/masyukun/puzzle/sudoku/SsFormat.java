@@ -0,0 +1,116 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Simple Sudoku .ss files: a single board, one row per line, with | between the squares and lines
+ * like ---+---+--- or *-----------* between the bands. Blanks are . or 0.
+ */
+public class SsFormat implements PuzzleFormat {
+
+	public String name() {
+		return "Simple Sudoku .ss";
+	}
+
+	/**
+	 * Walls or band lines, around a square board.
+	 */
+	public boolean recognizes(List<String> head) {
+		if (PuzzleFormats.declaresBoard(head)) {
+			return false;
+		}
+		boolean walls = false;
+		for (String line : PuzzleFormats.dataLines(head)) {
+			walls |= line.indexOf('|') >= 0 || isBand(line);
+		}
+		if (!walls) {
+			return false;
+		}
+		List<String> rows = rows(PuzzleFormats.dataLines(head));
+		for (String row : rows) {
+			if (row.length() != rows.size()) {
+				return false;
+			}
+		}
+		return !rows.isEmpty();
+	}
+
+	public Iterator<Puzzle> read(final BufferedReader in) {
+		return new PuzzleIterator() {
+			private boolean read = false;
+
+			protected Puzzle readNext() throws IOException {
+				if (read) {
+					return null;
+				}
+				read = true;
+
+				List<String> lines = new ArrayList<String>();
+				String line;
+				while ((line = in.readLine()) != null) {
+					lines.add(line);
+				}
+				List<String> rows = rows(PuzzleFormats.dataLines(lines));
+				StringBuilder cells = new StringBuilder(rows.size() * rows.size());
+				for (int ii = 0; ii < rows.size(); ++ii) {
+					if (rows.get(ii).length() != rows.size()) {
+						throw new IllegalArgumentException(String.format("row %d has %d cells, not %d",
+								ii + 1, rows.get(ii).length(), rows.size()));
+					}
+					cells.append(rows.get(ii));
+				}
+				return LineFormat.parse(cells);
+			}
+		};
+	}
+
+	/**
+	 * @return the rows, without their walls, spaces or the band lines between them
+	 */
+	private static List<String> rows(List<String> lines) {
+		List<String> rows = new ArrayList<String>(lines.size());
+		for (String line : lines) {
+			if (!isBand(line)) {
+				StringBuilder row = new StringBuilder(line.length());
+				for (int nn = 0; nn < line.length(); ++nn) {
+					char symbol = line.charAt(nn);
+					if (symbol != '|' && symbol > ' ') {
+						row.append(symbol);
+					}
+				}
+				rows.add(row.toString());
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * @return true for lines like ---+---+--- that only draw the bands
+	 */
+	private static boolean isBand(String line) {
+		boolean dashes = false;
+		for (int nn = 0; nn < line.length(); ++nn) {
+			char symbol = line.charAt(nn);
+			if (symbol == '-') {
+				dashes = true;
+			} else if (symbol != '+' && symbol != '*' && symbol != '=' && symbol != '|' && symbol > ' ') {
+				return false;
+			}
+		}
+		return dashes;
+	}
+}
@@ -0,0 +1,294 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable description of a Sudoku board: the square dimensions and the symbol alphabet.
+ * One geometry can be shared by any number of puzzles and threads.
+ */
+public final class SudokuGeometry {
+
+	/** The classic 9x9 board with 3x3 squares and the symbols 1-9 */
+	public static final SudokuGeometry DEFAULT
+		= new SudokuGeometry(3, 3, Arrays.asList("1","2","3","4","5","6","7","8","9"));
+
+	/** One-character symbols for boards read from text, in order; 0 and . are left free for blanks */
+	public static final String DEFAULT_SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	private static final ConcurrentMap<Integer, SudokuGeometry> BY_SIZE = new ConcurrentHashMap<Integer, SudokuGeometry>();
+
+	private final int horz;
+	private final int vert;
+	private final int rowsInSquare;
+	private final int columnsInSquare;
+	private final int numRowSquares;
+	private final int numColSquares;
+	private final List<String> numbers;
+	private final int maxSymbolLength;
+
+	// Lookup tables, built once per geometry. Cells are numbered row * vert + column.
+	/** Square of each cell */
+	private final int[] squareOf;
+	/** Cells of each unit, size to a unit: the rows, then the columns, then the squares */
+	private final int[] unitCells;
+	/** Peers of each cell, peerCount to a cell: the other cells sharing its row, column or square */
+	private final int[] peers;
+	private final int peerCount;
+
+	/**
+	 * @param rowsInSquare How many rows belong to a square
+	 * @param columnsInSquare How many columns belong to a square
+	 * @param numbers The symbol alphabet; needs exactly rowsInSquare*columnsInSquare distinct symbols
+	 */
+	public SudokuGeometry(int rowsInSquare, int columnsInSquare, List<String> numbers) {
+		if (rowsInSquare < 1 || columnsInSquare < 1) {
+			throw new IllegalArgumentException("Squares need at least one row and one column");
+		}
+		int size = rowsInSquare * columnsInSquare;
+		if (numbers.size() != size) {
+			throw new IllegalArgumentException(String.format(
+					"A board with %dx%d squares needs %d symbols, not %d", rowsInSquare, columnsInSquare, size, numbers.size()));
+		}
+		if (size > Candidates.MAX_SYMBOLS) {
+			throw new IllegalArgumentException("Alphabets are limited to " + Candidates.MAX_SYMBOLS + " symbols");
+		}
+
+		int longest = 0;
+		for (String symbol : numbers) {
+			if (symbol.length() == 0 || numbers.indexOf(symbol) != numbers.lastIndexOf(symbol)) {
+				throw new IllegalArgumentException("Symbols must be distinct and non-empty: " + numbers);
+			}
+			longest = Math.max(longest, symbol.length());
+		}
+
+		this.horz = size;
+		this.vert = size;
+		this.rowsInSquare = rowsInSquare;
+		this.columnsInSquare = columnsInSquare;
+		this.numRowSquares = size / rowsInSquare;
+		this.numColSquares = size / columnsInSquare;
+		this.numbers = Collections.unmodifiableList(new ArrayList<String>(numbers));
+		this.maxSymbolLength = longest;
+
+		int cells = size * size;
+		this.squareOf = new int[cells];
+		this.unitCells = new int[3 * cells];
+		int[] filled = new int[size];
+		for (int cell = 0; cell < cells; ++cell) {
+			int ii = cell / size;
+			int jj = cell % size;
+			int square = (ii / rowsInSquare) * numColSquares + jj / columnsInSquare;
+			squareOf[cell] = square;
+			unitCells[ii * size + jj] = cell;
+			unitCells[(size + jj) * size + ii] = cell;
+			unitCells[(2 * size + square) * size + filled[square]++] = cell;
+		}
+
+		// Peers come from the cell's own three units, so big boards don't pay cells squared
+		this.peerCount = 2 * (size - 1) + (rowsInSquare - 1) * (columnsInSquare - 1);
+		this.peers = new int[cells * peerCount];
+		for (int cell = 0; cell < cells; ++cell) {
+			int ii = cell / size;
+			int jj = cell % size;
+			int first = cell * peerCount;
+			int next = first;
+			for (int nth = 0; nth < size; ++nth) {
+				int inRow = unitCells[ii * size + nth];
+				int inCol = unitCells[(size + jj) * size + nth];
+				int inSquare = unitCells[(2 * size + squareOf[cell]) * size + nth];
+				if (inRow != cell) {
+					peers[next++] = inRow;
+				}
+				if (inCol != cell) {
+					peers[next++] = inCol;
+				}
+				if (inSquare / size != ii && inSquare % size != jj) {
+					peers[next++] = inSquare;
+				}
+			}
+			Arrays.sort(peers, first, next);
+		}
+	}
+
+	/**
+	 * The usual geometry for an NxN board: squares as close to square as the size allows, taller ones
+	 * wide (12 gives 3x4 squares), and the first N of DEFAULT_SYMBOLS. Boards too big for DEFAULT_SYMBOLS
+	 * count in decimal instead, 1 to N. Geometries are cached.
+	 * @param size N
+	 * @return the geometry
+	 */
+	public static SudokuGeometry forSize(int size) {
+		SudokuGeometry geometry = BY_SIZE.get(size);
+		if (null == geometry) {
+			if (size < 1 || size > Candidates.MAX_SYMBOLS) {
+				throw new IllegalArgumentException(String.format("Can't guess the symbols of a %dx%d board", size, size));
+			}
+			int rows = (int) Math.sqrt(size);
+			while (size % rows != 0) {
+				rows -= 1;
+			}
+			List<String> numbers = new ArrayList<String>();
+			for (int symbol = 0; symbol < size; ++symbol) {
+				numbers.add((size <= DEFAULT_SYMBOLS.length())
+						? DEFAULT_SYMBOLS.substring(symbol, symbol + 1) : String.valueOf(symbol + 1));
+			}
+			geometry = (size == DEFAULT.horz) ? DEFAULT : new SudokuGeometry(rows, size / rows, numbers);
+			BY_SIZE.putIfAbsent(size, geometry);
+		}
+		return geometry;
+	}
+
+	/** @return number of rows on the board */
+	public int horz() {
+		return horz;
+	}
+
+	/** @return number of columns on the board */
+	public int vert() {
+		return vert;
+	}
+
+	/** @return how many rows belong to a square */
+	public int rowsInSquare() {
+		return rowsInSquare;
+	}
+
+	/** @return how many columns belong to a square */
+	public int columnsInSquare() {
+		return columnsInSquare;
+	}
+
+	/** @return how many rows of squares are in the grid */
+	public int numRowSquares() {
+		return numRowSquares;
+	}
+
+	/** @return how many columns of squares are in the grid */
+	public int numColSquares() {
+		return numColSquares;
+	}
+
+	/** @return the symbol alphabet, read-only */
+	public List<String> numbers() {
+		return numbers;
+	}
+
+	/** @return length of the longest symbol, for printing */
+	public int maxSymbolLength() {
+		return maxSymbolLength;
+	}
+
+	/**
+	 * @return the index of a symbol in the alphabet, or -1 if it isn't one
+	 */
+	public int indexOf(String symbol) {
+		return numbers.indexOf(symbol);
+	}
+
+	/**
+	 * @return the symbol at an alphabet index
+	 */
+	public String symbol(int index) {
+		return numbers.get(index);
+	}
+
+	/**
+	 * @return candidate mask with every symbol set; only the first 64 on bigger alphabets
+	 * @see Candidates#fullWord(int, int)
+	 */
+	public long allSymbols() {
+		return Candidates.fullMask(numbers.size());
+	}
+
+	/**
+	 * Report the square number containing the absolute coordinate.
+	 * Square are numbered starting with 0 and are indexed from top left, across the columns, then down the rows.
+	 * @param m row
+	 * @param n column
+	 * @return
+	 */
+	public int inWhichSquare(int m, int n) {
+		return squareOf[m * vert + n];
+	}
+
+	/**
+	 * @return the square of a cell, numbered as in inWhichSquare
+	 */
+	public int squareOf(int cell) {
+		return squareOf[cell];
+	}
+
+	/** @return number of units: every row, column and square */
+	public int unitCount() {
+		return 3 * horz;
+	}
+
+	/**
+	 * Get one cell of a unit. Units 0..size-1 are the rows, then come the columns, then the squares.
+	 * @param unit
+	 * @param nth 0..size-1, left to right and top to bottom
+	 * @return the cell as row * vert + column
+	 */
+	public int unitCell(int unit, int nth) {
+		return unitCells[unit * horz + nth];
+	}
+
+	/**
+	 * Get one cell of a square.
+	 * @see #unitCell(int, int)
+	 */
+	public int squareCell(int square, int nth) {
+		return unitCells[(2 * horz + square) * horz + nth];
+	}
+
+	/** @return how many peers every cell has */
+	public int peerCount() {
+		return peerCount;
+	}
+
+	/**
+	 * Get one peer of a cell -- another cell sharing its row, column or square.
+	 * @param cell row * vert + column
+	 * @param nth 0..peerCount()-1
+	 * @return the peer as row * vert + column
+	 */
+	public int peer(int cell, int nth) {
+		return peers[cell * peerCount + nth];
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SudokuGeometry)) {
+			return false;
+		}
+		SudokuGeometry that = (SudokuGeometry) other;
+		return rowsInSquare == that.rowsInSquare
+				&& columnsInSquare == that.columnsInSquare
+				&& numbers.equals(that.numbers);
+	}
+
+	@Override
+	public int hashCode() {
+		return (rowsInSquare * 31 + columnsInSquare) * 31 + numbers.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%dx%d board, %dx%d squares, symbols %s", horz, vert, rowsInSquare, columnsInSquare, numbers);
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+/**
+ * One logical deduction that narrows the possible moves of a puzzle without guessing.
+ * The Solver runs its techniques cheapest first, going back to singles after every one that gets anywhere.
+ * Techniques must hold no per-puzzle state; one instance is shared by every puzzle a Solver works on.
+ */
+public interface Technique {
+
+	/**
+	 * @return what to call it when telling the user
+	 */
+	String name();
+
+	/**
+	 * Make one round of eliminations, striking possibles through Puzzle.removePossibles.
+	 * @param puzzle
+	 * @return true if any possible move was struck
+	 */
+	boolean apply(Puzzle puzzle);
+}
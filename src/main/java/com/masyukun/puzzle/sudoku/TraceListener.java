@@ -0,0 +1,92 @@
+/**
+ * MxN Sudoku Solver, v 0.20130424
+ * https://github.com/masyukun/mxnsudoku
+ *
+ * Copyright (c) 2013, Matthew Royal
+ * All rights reserved.
+ *
+ * See MxNSudoku.java for the full license text.
+ */
+
+package com.masyukun.puzzle.sudoku;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a solve as JSON lines, one object per event, for tools to pick over:
+ * <pre>
+ * {"event":"play","row":1,"col":3,"symbol":"7","technique":"oneline","consistent":true}
+ * {"event":"narrow","technique":"naked pair"}
+ * {"event":"backtrack","row":2,"col":4,"symbol":"1"}
+ * </pre>
+ * Rows and columns count from 1, like the console. Lines are written whole, so many threads can share
+ * one trace, but their events interleave; trace one puzzle at a time to keep it readable.
+ */
+public class TraceListener implements SolveListener {
+
+	private final Appendable out;
+
+	/**
+	 * @param out where the lines go; buffer it, and flush it when the solve is done
+	 */
+	public TraceListener(Appendable out) {
+		this.out = out;
+	}
+
+	public void played(Puzzle puzzle, int ii, int jj, int index, String technique, boolean consistent) {
+		StringBuilder line = new StringBuilder(96).append("{\"event\":\"play\",");
+		cell(line, puzzle, ii, jj, index);
+		line.append(",\"technique\":");
+		quote(line, technique);
+		line.append(",\"consistent\":").append(consistent).append('}');
+		write(line);
+	}
+
+	public void narrowed(Puzzle puzzle, String technique) {
+		StringBuilder line = new StringBuilder(48).append("{\"event\":\"narrow\",\"technique\":");
+		quote(line, technique);
+		write(line.append('}'));
+	}
+
+	public void backtracked(Puzzle puzzle, int ii, int jj, int index) {
+		StringBuilder line = new StringBuilder(64).append("{\"event\":\"backtrack\",");
+		cell(line, puzzle, ii, jj, index);
+		write(line.append('}'));
+	}
+
+	public void searched(Puzzle puzzle, int depth) {
+	}
+
+	public void timed(Puzzle puzzle, String phase, int steps, long nanos) {
+	}
+
+	private static void cell(StringBuilder line, Puzzle puzzle, int ii, int jj, int index) {
+		line.append("\"row\":").append(ii + 1).append(",\"col\":").append(jj + 1).append(",\"symbol\":");
+		quote(line, puzzle.geometry().symbol(index));
+	}
+
+	/**
+	 * Append a JSON string. Symbols and technique names are tame, but quotes and backslashes get escaped anyway.
+	 */
+	private static void quote(StringBuilder line, String text) {
+		line.append('"');
+		for (int ii = 0; ii < text.length(); ++ii) {
+			char ch = text.charAt(ii);
+			if (ch == '"' || ch == '\\') {
+				line.append('\\');
+			}
+			line.append(ch);
+		}
+		line.append('"');
+	}
+
+	private synchronized void write(StringBuilder line) {
+		try {
+			out.append(line).append('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException("Can't write the trace", e);
+		}
+	}
+}
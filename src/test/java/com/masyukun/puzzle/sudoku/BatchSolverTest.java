@@ -0,0 +1,313 @@
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for batch solving and the one-line puzzle format.
+ */
+public class BatchSolverTest
+    extends TestCase
+{
+    static final String HARD =
+        "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+    static final String HARD_SOLVED =
+        "417369825632158947958724316825437169791586432346912758289643571573291684164875293";
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BatchSolverTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BatchSolverTest.class );
+    }
+
+    public void testLineRoundTrip()
+    {
+        Puzzle puzzle = LineFormat.parse( HARD.replace( '.', '0' ) );
+        assertEquals( HARD, LineFormat.format( puzzle ) );
+        assertEquals( "4", puzzle.get( 0, 0 ) );
+        assertTrue( puzzle.isEmpty( 0, 1 ) );
+    }
+
+    public void testOtherSizes()
+    {
+        Puzzle puzzle = LineFormat.parse( "1..............." );
+        assertEquals( 4, puzzle.geometry().horz() );
+        assertEquals( 2, puzzle.geometry().rowsInSquare() );
+
+        SudokuGeometry twelve = SudokuGeometry.forSize( 12 );
+        assertEquals( 3, twelve.rowsInSquare() );
+        assertEquals( 4, twelve.columnsInSquare() );
+        assertEquals( "C", twelve.symbol( 11 ) );
+    }
+
+    public void testBatch() throws Exception
+    {
+        String input = "# a comment\n" + HARD + "\n\nnot a puzzle\n" + HARD + "\n";
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver() ).run( new BufferedReader( new StringReader( input ) ), out );
+
+        assertEquals( HARD_SOLVED + "\nnot a puzzle\n" + HARD_SOLVED + "\n", out.toString() );
+        assertEquals( 3, summary.puzzles() );
+        assertEquals( 2, summary.solved() );
+        assertEquals( 0, summary.unsolved() );
+        assertEquals( 1, summary.invalid() );
+    }
+
+    public void testParallelKeepsInputOrder() throws Exception
+    {
+        StringBuilder input = new StringBuilder();
+        for ( int puzzle = 0; puzzle < 50; ++puzzle )
+        {
+            // Alternate a hard 9x9 with a blank 4x4 so answers finish out of order
+            boolean hard = puzzle % 2 == 0;
+            input.append( hard ? HARD : "................" ).append( '\n' );
+        }
+
+        StringWriter sequential = new StringWriter();
+        new BatchSolver( new Solver(), 1 ).run( new BufferedReader( new StringReader( input.toString() ) ), sequential );
+        StringWriter parallel = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver(), 4 ).run(
+                new BufferedReader( new StringReader( input.toString() ) ), parallel );
+
+        assertEquals( sequential.toString(), parallel.toString() );
+        assertEquals( 50, summary.solved() );
+        String[] lines = parallel.toString().split( "\n" );
+        for ( int puzzle = 0; puzzle < lines.length; puzzle += 2 )
+        {
+            assertEquals( HARD_SOLVED, lines[puzzle] );
+        }
+    }
+
+    public void testMappedReader() throws Exception
+    {
+        String input = "# a comment\r\n" + HARD + "\r\n\n  not a puzzle \n" + HARD + "\n................";
+        File file = File.createTempFile( "puzzles", ".txt" );
+        file.deleteOnExit();
+        FileOutputStream bytes = new FileOutputStream( file );
+        bytes.write( input.getBytes( "UTF-8" ) );
+        bytes.close();
+
+        // A window smaller than two lines makes every line cross a window boundary sooner or later
+        MappedPuzzleReader in = new MappedPuzzleReader( file, 100 );
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver(), 2 ).run( in, out );
+        in.close();
+
+        String[] lines = out.toString().split( "\n" );
+        assertEquals( 4, lines.length );
+        assertEquals( HARD_SOLVED, lines[0] );
+        assertEquals( "not a puzzle", lines[1] );
+        assertEquals( HARD_SOLVED, lines[2] );
+        assertEquals( 3, summary.solved() );
+        assertEquals( 1, summary.invalid() );
+    }
+
+    public void testCountSolutions() throws Exception
+    {
+        Engine[] engines = { new Solver(), new DancingLinks() };
+        for ( Engine engine : engines )
+        {
+            Puzzle puzzle = LineFormat.parse( HARD );
+            assertEquals( 1, engine.countSolutions( puzzle, 2 ) );
+            assertEquals( HARD, LineFormat.format( puzzle ) );
+
+            // A blank 4x4 board has 288 fillings
+            assertEquals( 2, engine.countSolutions( LineFormat.parse( "................" ), 2 ) );
+            assertEquals( 288, engine.countSolutions( LineFormat.parse( "................" ), 1000 ) );
+            assertEquals( 0, engine.countSolutions( LineFormat.parse( "11.............." ), 2 ) );
+
+            // Counts give up like solves do
+            SolveBudget oneNode = SolveBudget.UNLIMITED.withMaxNodes( 1 );
+            assertEquals( -1, engine.countSolutions( LineFormat.parse( "................" ), 1000, oneNode, CancellationToken.NONE ) );
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            assertEquals( -1, engine.countSolutions( LineFormat.parse( "................" ), 2, SolveBudget.UNLIMITED, token ) );
+            assertEquals( 1, engine.countSolutions( LineFormat.parse( HARD_SOLVED ), 2, oneNode, CancellationToken.NONE ) );
+        }
+
+        String input = HARD + "\n................\n";
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver(), 1, null, 2 ).run(
+                new BufferedReader( new StringReader( input ) ), out );
+        assertEquals( "1 " + HARD + "\n2 ................\n", out.toString() );
+        assertEquals( 1, summary.solved() );
+        assertEquals( 1, summary.unsolved() );
+
+        // A count that runs out of budget is tallied as timed out
+        input = HARD_SOLVED + "\n................\n";
+        out = new StringWriter();
+        summary = new BatchSolver( new Solver(), 1, null, 1000, SolveBudget.UNLIMITED.withMaxNodes( 1 ) ).run(
+                new BufferedReader( new StringReader( input ) ), out );
+        assertEquals( "1 " + HARD_SOLVED + "\n? ................\n", out.toString() );
+        assertEquals( 1, summary.solved() );
+        assertEquals( 1, summary.timedOut() );
+
+        // and one cut short by a cancel as cancelled
+        final BatchSolver batch = new BatchSolver( new Solver(), 1, null, 2 );
+        StringWriter cancelling = new StringWriter()
+        {
+            @Override
+            public void write( String str )
+            {
+                super.write( str );
+                batch.cancel();
+            }
+        };
+        summary = batch.run( new BufferedReader( new StringReader( HARD + "\n" + HARD + "\n" ) ), cancelling );
+        assertEquals( 1, summary.solved() );
+        assertEquals( 1, summary.cancelled() );
+        assertTrue( cancelling.toString().endsWith( "\n? " + HARD + "\n" ) );
+    }
+
+    public void testBudget() throws Exception
+    {
+        // Singles alone can't finish HARD, so one search node isn't enough
+        Solver singles = new Solver( SolveListener.NONE, java.util.Collections.<Technique>emptyList() );
+        String input = HARD + "\n" + HARD_SOLVED + "\n";
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( singles, 2, null, 0, SolveBudget.UNLIMITED.withMaxNodes( 1 ) ).run(
+                new BufferedReader( new StringReader( input ) ), out );
+        assertEquals( 1, summary.solved() );
+        assertEquals( 1, summary.timedOut() );
+        assertTrue( out.toString().endsWith( "\n" + HARD_SOLVED + "\n" ) );
+
+        // Cancelled once the first answer is out, so the rest come back untouched
+        final BatchSolver batch = new BatchSolver( new Solver( SolveListener.NONE ) );
+        StringWriter cancelling = new StringWriter()
+        {
+            @Override
+            public void write( String str )
+            {
+                super.write( str );
+                batch.cancel();
+            }
+        };
+        String three = HARD + "\n" + HARD + "\n" + HARD + "\n";
+        summary = batch.run( new BufferedReader( new StringReader( three ) ), cancelling );
+        assertEquals( 1, summary.solved() );
+        assertEquals( 2, summary.cancelled() );
+        assertTrue( cancelling.toString().endsWith( "\n" + HARD + "\n" ) );
+
+        // and the next run starts afresh
+        summary = batch.run( new BufferedReader( new StringReader( input ) ), new StringWriter() );
+        assertEquals( 2, summary.solved() );
+    }
+
+    public void testLongSymbols() throws Exception
+    {
+        File file = File.createTempFile( "solfege", ".sdk" );
+        file.deleteOnExit();
+        java.io.Writer text = new java.io.OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+        text.write( "# geometry 2x3\n# symbols do re mi fa so la\n" );
+        text.write( "do re mi fa so la\nfa so la do re mi\nre mi do so la fa\n" );
+        text.write( "so la fa re mi do\nmi do re la fa so\n. . . . . .\n" );
+        text.close();
+
+        PuzzleFileReader in = PuzzleFormats.open( file );
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver( SolveListener.NONE ), 2 ).run( in, out );
+        in.close();
+        assertEquals( 1, summary.solved() );
+        String[] answer = out.toString().trim().split( " " );
+        assertEquals( 36, answer.length );
+        assertEquals( "mi", answer[11] );
+        assertEquals( "la", answer[30] );
+    }
+
+    public void testBrokenPuzzleDoesNotStopTheBatch() throws Exception
+    {
+        // An engine that chokes on anything with a 4 in the corner
+        final Solver solver = new Solver( SolveListener.NONE );
+        Engine fussy = new Engine()
+        {
+            public boolean solve( Puzzle puzzle )
+            {
+                return solve( puzzle, SolveBudget.UNLIMITED, CancellationToken.NONE ) == SolveStatus.SOLVED;
+            }
+
+            public SolveStatus solve( Puzzle puzzle, SolveBudget budget, CancellationToken token )
+            {
+                if ( "4".equals( puzzle.get( 0, 0 ) ) )
+                {
+                    throw new IllegalStateException( "no fours" );
+                }
+                return solver.solve( puzzle, budget, token );
+            }
+
+            public int countSolutions( Puzzle puzzle, int limit )
+            {
+                return solver.countSolutions( puzzle, limit );
+            }
+
+            public int countSolutions( Puzzle puzzle, int limit, SolveBudget budget, CancellationToken token )
+            {
+                return solver.countSolutions( puzzle, limit, budget, token );
+            }
+        };
+        String input = HARD + "\n" + HARD.substring( 1 ) + ".\n";
+        for ( int workers = 1; workers <= 2; ++workers )
+        {
+            StringWriter out = new StringWriter();
+            BatchSummary summary = new BatchSolver( fussy, workers ).run(
+                    new BufferedReader( new StringReader( input ) ), out );
+            assertEquals( 1, summary.invalid() );
+            assertEquals( 1, summary.solved() );
+            assertTrue( out.toString(), out.toString().startsWith( "# " ) );
+        }
+    }
+
+    public void testBinaryFormat() throws Exception
+    {
+        String input = HARD + "\nnot a puzzle\n" + HARD_SOLVED + "\n................\n" + HARD.replace( '4', '.' ) + "\n";
+        File text = File.createTempFile( "puzzles", ".txt" );
+        text.deleteOnExit();
+        FileOutputStream bytes = new FileOutputStream( text );
+        bytes.write( input.getBytes( "UTF-8" ) );
+        bytes.close();
+
+        // The 4x4 line doesn't fit a 9x9 file and is skipped like the junk
+        File binary = File.createTempFile( "puzzles", ".mxn" );
+        binary.deleteOnExit();
+        MappedPuzzleReader in = new MappedPuzzleReader( text );
+        assertEquals( 3, BinaryPuzzleWriter.convert( in, new FileOutputStream( binary ), new Solver(), SolveBudget.UNLIMITED ) );
+        in.close();
+        assertTrue( BinaryPuzzleReader.isBinary( binary ) );
+        assertFalse( BinaryPuzzleReader.isBinary( text ) );
+        // 4 bits a cell for 9 symbols: 41 bytes a board, two boards a record
+        assertTrue( binary.length() < 3 * 82 + 64 );
+
+        BinaryPuzzleReader reader = new BinaryPuzzleReader( binary );
+        assertEquals( 3, reader.size() );
+        assertTrue( reader.hasSolutions() );
+        assertEquals( SudokuGeometry.DEFAULT, reader.geometry() );
+        assertEquals( HARD.replace( '4', '.' ), LineFormat.format( reader.puzzle( 2 ) ) );
+        assertEquals( HARD, LineFormat.format( reader.puzzle( 0 ) ) );
+        assertEquals( HARD_SOLVED, LineFormat.format( reader.solution( 0 ) ) );
+        assertEquals( HARD_SOLVED, LineFormat.format( reader.puzzle( 1 ) ) );
+
+        StringWriter out = new StringWriter();
+        BatchSummary summary = new BatchSolver( new Solver(), 2 ).run( reader, 1, 2, out );
+        assertEquals( HARD_SOLVED + "\n", out.toString() );
+        assertEquals( 1, summary.solved() );
+        reader.close();
+    }
+}
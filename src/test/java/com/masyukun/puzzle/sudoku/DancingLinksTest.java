@@ -0,0 +1,70 @@
+package com.masyukun.puzzle.sudoku;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the dancing links engine.
+ */
+public class DancingLinksTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public DancingLinksTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( DancingLinksTest.class );
+    }
+
+    public void testSolvesBuiltInGames()
+    {
+        for ( int game : new int[] { 1, 2, 3, 4, 5, 12, 13 } )
+        {
+            Puzzle puzzle = MxNSudoku.initGrid( game );
+            assertTrue( "game " + game, new DancingLinks().solve( puzzle ) );
+            SolverTest.assertValidSolution( puzzle );
+        }
+    }
+
+    public void testAgreesWithSolver()
+    {
+        Puzzle dlx = MxNSudoku.initGrid( 1 );
+        Puzzle propagation = MxNSudoku.initGrid( 1 );
+        new DancingLinks().solve( dlx );
+        new Solver().solve( propagation );
+        for ( int ii = 0; ii < 9; ++ii )
+        {
+            assertTrue( Arrays.equals( propagation.toGrid()[ii], dlx.toGrid()[ii] ) );
+        }
+    }
+
+    public void testLargerBoards()
+    {
+        Puzzle puzzle = new Puzzle( new SudokuGeometry( 4, 5, Arrays.asList(
+                "1","2","3","4","5","6","7","8","9","A","B","C","D","E","F","G","H","I","J","K" ) ) );
+        assertTrue( new DancingLinks().solve( puzzle ) );
+        SolverTest.assertValidSolution( puzzle );
+    }
+
+    public void testConflictingGivens()
+    {
+        String[][] grid = Puzzle.gridFactory( 9, 9 );
+        grid[0][0] = "5";
+        grid[0][8] = "5";
+        assertFalse( new DancingLinks().solve( new Puzzle( SudokuGeometry.DEFAULT, grid ) ) );
+    }
+}
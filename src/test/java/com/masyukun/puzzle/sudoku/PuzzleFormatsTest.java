@@ -0,0 +1,149 @@
+package com.masyukun.puzzle.sudoku;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the PuzzleFormats and how they're told apart.
+ */
+public class PuzzleFormatsTest
+    extends TestCase
+{
+    static final String SS =
+        "*-----------*\n"
+        + "|4..|...|8.5|\n|.3.|...|...|\n|...|7..|...|\n"
+        + "|---+---+---|\n"
+        + "|.2.|...|.6.|\n|...|.8.|4..|\n|...|.1.|...|\n"
+        + "|---+---+---|\n"
+        + "|...|6.3|.7.|\n|5..|2..|...|\n|1.4|...|...|\n"
+        + "*-----------*\n";
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public PuzzleFormatsTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( PuzzleFormatsTest.class );
+    }
+
+    private static PuzzleFileReader open( String text ) throws Exception
+    {
+        BufferedReader in = new BufferedReader( new StringReader( text ) );
+        PuzzleFormat format = PuzzleFormats.detect( PuzzleFormats.head( in ) );
+        assertNotNull( text, format );
+        return new PuzzleFileReader( in, format );
+    }
+
+    private static String rows( String line, String separator )
+    {
+        StringBuilder rows = new StringBuilder();
+        for ( int ii = 0; ii < 9; ++ii )
+        {
+            rows.append( line.substring( ii * 9, ii * 9 + 9 ) ).append( separator );
+        }
+        return rows.toString();
+    }
+
+    public void testEveryFormatReadsTheSamePuzzle() throws Exception
+    {
+        StringBuilder sdx = new StringBuilder();
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            char symbol = BatchSolverTest.HARD.charAt( cell );
+            sdx.append( ( symbol == '.' ) ? "1279" : ( cell % 2 == 0 ) ? "u" + symbol : "" + symbol );
+            sdx.append( ( cell % 9 == 8 ) ? "\n" : " " );
+        }
+
+        String[] files = {
+            "# one per line\n" + BatchSolverTest.HARD + "\n",
+            "#A somebody\n[Puzzle]\n" + rows( BatchSolverTest.HARD, "\n" ),
+            SS,
+            sdx.toString(),
+        };
+        Class<?>[] formats = { SdmFormat.class, SdkFormat.class, SsFormat.class, SdxFormat.class };
+        for ( int nth = 0; nth < files.length; ++nth )
+        {
+            PuzzleFileReader in = open( files[nth] );
+            assertEquals( formats[nth], in.format().getClass() );
+            assertTrue( in.hasNext() );
+            assertEquals( BatchSolverTest.HARD, LineFormat.format( in.next() ) );
+            assertFalse( in.hasNext() );
+            in.close();
+        }
+    }
+
+    public void testBoardsAreNotLines()
+    {
+        // Nine rows of nine, or four of four, are a board even though each row is a square number long
+        List<String> board = Arrays.asList( rows( BatchSolverTest.HARD, "\n" ).split( "\n" ) );
+        assertTrue( PuzzleFormats.detect( board ) instanceof SdkFormat );
+        assertTrue( PuzzleFormats.detect( Arrays.asList( "1...", "..2.", ".3..", "...4" ) ) instanceof SdkFormat );
+        assertTrue( PuzzleFormats.detect( Arrays.asList( "1...", "..2.", ".3.." ) ) instanceof SdmFormat );
+        assertNull( PuzzleFormats.detect( Arrays.asList( "hello" ) ) );
+    }
+
+    public void testNPuzzlesOfNCellsAreLines() throws Exception
+    {
+        // 81 puzzles of 81 cells, or 16 of 16, are a corpus, not one big board
+        StringBuilder nines = new StringBuilder();
+        for ( int nth = 0; nth < 81; ++nth )
+        {
+            nines.append( ( nth % 2 == 0 ) ? BatchSolverTest.HARD : BatchSolverTest.HARD_SOLVED ).append( '\n' );
+        }
+        PuzzleFileReader in = open( nines.toString() );
+        assertTrue( in.format() instanceof SdmFormat );
+        int count = 0;
+        while ( in.hasNext() )
+        {
+            assertEquals( 9, in.next().geometry().horz() );
+            ++count;
+        }
+        assertEquals( 81, count );
+        in.close();
+
+        String[] fours = new String[16];
+        java.util.Arrays.fill( fours, "1..............." );
+        assertTrue( PuzzleFormats.detect( Arrays.asList( fours ) ) instanceof SdmFormat );
+
+        // Unless something says it's a board
+        List<String> declared = new java.util.ArrayList<String>( Arrays.asList( fours ) );
+        declared.add( 0, "# geometry 4x4" );
+        assertTrue( PuzzleFormats.detect( declared ) instanceof SdkFormat );
+    }
+
+    public void testLinesAreReadLazily() throws Exception
+    {
+        PuzzleFileReader in = open( BatchSolverTest.HARD + "\nnonsense\n" + BatchSolverTest.HARD_SOLVED + "\n" );
+        Iterator<Puzzle> puzzles = in;
+        assertEquals( BatchSolverTest.HARD, LineFormat.format( puzzles.next() ) );
+        try
+        {
+            puzzles.next();
+            fail( "nonsense isn't a puzzle" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // and the next line still is
+        }
+        assertEquals( BatchSolverTest.HARD_SOLVED, LineFormat.format( puzzles.next() ) );
+        assertFalse( puzzles.hasNext() );
+        in.close();
+    }
+}
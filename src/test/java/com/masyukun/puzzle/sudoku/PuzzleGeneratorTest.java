@@ -0,0 +1,73 @@
+package com.masyukun.puzzle.sudoku;
+
+import java.io.StringWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for PuzzleGenerator.
+ */
+public class PuzzleGeneratorTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public PuzzleGeneratorTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( PuzzleGeneratorTest.class );
+    }
+
+    public void testPuzzlesAreUnique()
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( SudokuGeometry.DEFAULT );
+        Puzzle puzzle = generator.generate( 42L, 0, null );
+        assertEquals( 1, new DancingLinks().countSolutions( puzzle, 2 ) );
+        assertEquals( LineFormat.format( puzzle ), LineFormat.format( generator.generate( 42L, 0, null ) ) );
+
+        // Minimal: no clue can come out without a second solution turning up
+        String line = LineFormat.format( puzzle );
+        for ( int cell = 0; cell < line.length(); ++cell )
+        {
+            if ( line.charAt( cell ) != '.' )
+            {
+                Puzzle fewer = LineFormat.parse( line.substring( 0, cell ) + '.' + line.substring( cell + 1 ) );
+                assertEquals( 2, new Solver().countSolutions( fewer, 2 ) );
+            }
+        }
+
+        Puzzle easy = new PuzzleGenerator( SudokuGeometry.forSize( 6 ) ).generate( 7L, 20, PuzzleGenerator.Difficulty.EASY );
+        assertEquals( 1, new Solver().countSolutions( easy, 2 ) );
+        assertTrue( new Solver().deduce( easy ) );
+        SolverTest.assertValidSolution( easy );
+    }
+
+    public void testParallelWriteKeepsSeedOrder() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( SudokuGeometry.forSize( 4 ) );
+        StringWriter one = new StringWriter();
+        generator.write( 20, 5L, 0, null, one, 1 );
+        StringWriter many = new StringWriter();
+        generator.write( 20, 5L, 0, null, many, 3 );
+        assertEquals( one.toString(), many.toString() );
+
+        String[] lines = one.toString().split( "\n" );
+        assertEquals( 20, lines.length );
+        for ( String line : lines )
+        {
+            assertEquals( 1, new DancingLinks().countSolutions( LineFormat.parse( line ), 2 ) );
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.masyukun.puzzle.sudoku;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.ObjectName;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for Solver and the Puzzle it works on.
+ */
+public class SolverTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public SolverTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( SolverTest.class );
+    }
+
+    /**
+     * Every row, column and square holds each symbol exactly once.
+     */
+    static void assertValidSolution( Puzzle puzzle )
+    {
+        SudokuGeometry geometry = puzzle.geometry();
+        int size = geometry.horz();
+        for ( int unit = 0; unit < size; ++unit )
+        {
+            long row = 0L, col = 0L, sqr = 0L;
+            for ( int kk = 0; kk < size; ++kk )
+            {
+                row |= 1L << geometry.indexOf( puzzle.get( unit, kk ) );
+                col |= 1L << geometry.indexOf( puzzle.get( kk, unit ) );
+                int ii = ( unit / geometry.numColSquares() ) * geometry.rowsInSquare() + kk / geometry.columnsInSquare();
+                int jj = ( unit % geometry.numColSquares() ) * geometry.columnsInSquare() + kk % geometry.columnsInSquare();
+                sqr |= 1L << geometry.indexOf( puzzle.get( ii, jj ) );
+            }
+            assertEquals( "row " + unit, geometry.allSymbols(), row );
+            assertEquals( "column " + unit, geometry.allSymbols(), col );
+            assertEquals( "square " + unit, geometry.allSymbols(), sqr );
+        }
+    }
+
+    public void testSolvesEasyGame()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 2 );
+        assertTrue( new Solver().solve( puzzle ) );
+        assertValidSolution( puzzle );
+    }
+
+    public void testSearchSolvesWhatLogicCannot()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 1 );
+        assertFalse( new Solver().deduce( puzzle ) );
+        assertTrue( new Solver().solve( puzzle ) );
+        assertValidSolution( puzzle );
+    }
+
+    public void testSearchFillsBlankBoards()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 0 );
+        assertTrue( new Solver().solve( puzzle ) );
+        assertValidSolution( puzzle );
+
+        puzzle = new Puzzle( new SudokuGeometry( 4, 4, java.util.Arrays.asList(
+                "1","2","3","4","5","6","7","8","9","A","B","C","D","E","F","G" ) ) );
+        assertTrue( new Solver().solve( puzzle ) );
+        assertValidSolution( puzzle );
+    }
+
+    public void testNoSolution()
+    {
+        String[][] grid = Puzzle.gridFactory( 9, 9 );
+        // The top row needs a 1 in its first cell, but that column already has one
+        for ( int jj = 1; jj < 9; ++jj )
+        {
+            grid[0][jj] = String.valueOf( jj + 1 );
+        }
+        grid[5][0] = "1";
+        Puzzle puzzle = new Puzzle( SudokuGeometry.DEFAULT, grid );
+        int before = countGivens( puzzle );
+        assertFalse( new Solver().solve( puzzle ) );
+        assertFalse( puzzle.isSolved() );
+        assertTrue( countGivens( puzzle ) >= before );
+    }
+
+    public void testClashingGivens()
+    {
+        // Two 1s in the top row and nothing else; no empty cell ever runs dry, so only a check up front stops it
+        StringBuilder line = new StringBuilder( "11" );
+        while ( line.length() < 81 )
+        {
+            line.append( '.' );
+        }
+        SolveBudget budget = SolveBudget.UNLIMITED.withMaxNodes( 10000 );
+        Engine[] engines = { new Solver( SolveListener.NONE ), new DancingLinks(), new ParallelSolver( new Solver( SolveListener.NONE ) ) };
+        for ( Engine engine : engines )
+        {
+            String name = engine.getClass().getSimpleName();
+            Puzzle puzzle = LineFormat.parse( line.toString() );
+            assertEquals( name, SolveStatus.UNSOLVED, engine.solve( puzzle, budget, CancellationToken.NONE ) );
+            assertFalse( name, engine.solve( puzzle ) );
+        }
+    }
+
+    public void testContradictionEndsTheNode()
+    {
+        // The top row has nowhere for its 1, though each of its empty cells can still take a 2 or a 3
+        StringBuilder line = new StringBuilder( "...4567891" );
+        while ( line.length() < 81 )
+        {
+            line.append( '.' );
+        }
+        Puzzle puzzle = LineFormat.parse( line.toString() );
+        assertEquals( Solver.Deduction.CONTRADICTION, new Solver().propagate( new Puzzle( puzzle ) ) );
+
+        SolverMetrics metrics = new SolverMetrics();
+        Solver solver = new Solver( metrics );
+        assertFalse( solver.solve( new Puzzle( puzzle ) ) );
+        assertEquals( 0, solver.countSolutions( puzzle, 2 ) );
+        assertEquals( 2, metrics.getSearchNodes() );
+        assertEquals( 0, metrics.getBacktracks() );
+    }
+
+    public void testUndoRestoresState()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 3 );
+        String[][] grid = puzzle.toGrid();
+        long[] masks = new long[81];
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            masks[cell] = puzzle.possibles().mask( cell / 9, cell % 9 );
+        }
+        int mark = puzzle.mark();
+        new Solver().solve( puzzle );
+        puzzle.undo( mark );
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            assertEquals( grid[cell / 9][cell % 9], puzzle.get( cell / 9, cell % 9 ) );
+            assertEquals( masks[cell], puzzle.possibles().mask( cell / 9, cell % 9 ) );
+        }
+
+        // Playing over a given comes undone too
+        int given = 0;
+        while ( puzzle.isEmpty( given ) )
+        {
+            ++given;
+        }
+        String symbol = puzzle.get( given / 9, given % 9 );
+        mark = puzzle.mark();
+        puzzle.updateSquare( given / 9, given % 9, ( puzzle.symbolAt( given ) + 1 ) % 9 );
+        assertFalse( symbol.equals( puzzle.get( given / 9, given % 9 ) ) );
+        puzzle.undo( mark );
+        assertEquals( symbol, puzzle.get( given / 9, given % 9 ) );
+        assertFalse( puzzle.isSolved() );
+        new Solver().solve( puzzle );
+        assertValidSolution( puzzle );
+    }
+
+    public void testParallelSolver()
+    {
+        ParallelSolver parallel = new ParallelSolver( new Solver(), 4 );
+        Puzzle puzzle = LineFormat.parse( BatchSolverTest.HARD );
+        assertTrue( parallel.solve( puzzle ) );
+        assertEquals( BatchSolverTest.HARD_SOLVED, LineFormat.format( puzzle ) );
+
+        puzzle = new Puzzle( SudokuGeometry.forSize( 16 ) );
+        assertTrue( parallel.solve( puzzle ) );
+        assertValidSolution( puzzle );
+
+        String[][] grid = Puzzle.gridFactory( 9, 9 );
+        for ( int jj = 1; jj < 9; ++jj )
+        {
+            grid[0][jj] = String.valueOf( jj + 1 );
+        }
+        grid[5][0] = "1";
+        assertFalse( parallel.solve( new Puzzle( SudokuGeometry.DEFAULT, grid ) ) );
+        parallel.close();
+
+        // The common pool outlives any one solver
+        ParallelSolver shared = new ParallelSolver( new Solver( SolveListener.NONE ) );
+        shared.close();
+        assertTrue( shared.solve( LineFormat.parse( BatchSolverTest.HARD ) ) );
+    }
+
+    private static int countGivens( Puzzle puzzle )
+    {
+        int count = 0;
+        for ( int ii = 0; ii < puzzle.geometry().horz(); ++ii )
+        {
+            for ( int jj = 0; jj < puzzle.geometry().vert(); ++jj )
+            {
+                count += puzzle.isEmpty( ii, jj ) ? 0 : 1;
+            }
+        }
+        return count;
+    }
+
+    public void testGivensAreKept()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 2 );
+        String[][] givens = puzzle.toGrid();
+        new Solver().solve( puzzle );
+        for ( int ii = 0; ii < givens.length; ++ii )
+        {
+            for ( int jj = 0; jj < givens[ii].length; ++jj )
+            {
+                if ( !givens[ii][jj].equals( Puzzle.EMPTY ) )
+                {
+                    assertEquals( givens[ii][jj], puzzle.get( ii, jj ) );
+                }
+            }
+        }
+    }
+
+    public void testUpdateSquareReportsContradiction()
+    {
+        Puzzle puzzle = new Puzzle( SudokuGeometry.DEFAULT );
+        // Leave grid[1][1] with only "9" possible, then take the 9 away from it
+        for ( int jj = 1; jj < 9; ++jj )
+        {
+            assertTrue( puzzle.updateSquare( 0, jj, jj - 1 ) );
+        }
+        assertEquals( 1, puzzle.possibles().size( 0, 0 ) );
+        assertFalse( puzzle.updateSquare( 1, 0, 8 ) );
+    }
+
+    public void testConcurrentGeometries() throws Exception
+    {
+        final Solver solver = new Solver();
+        final Puzzle[] puzzles = { MxNSudoku.initGrid( 2 ), MxNSudoku.initGrid( 13 ) };
+        final boolean[] solved = new boolean[puzzles.length];
+        Thread[] threads = new Thread[puzzles.length];
+        for ( int ii = 0; ii < threads.length; ++ii )
+        {
+            final int which = ii;
+            threads[ii] = new Thread( new Runnable()
+            {
+                public void run()
+                {
+                    solved[which] = solver.solve( puzzles[which] );
+                }
+            } );
+            threads[ii].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        assertTrue( solved[0] );
+        assertValidSolution( puzzles[0] );
+        assertEquals( 12, puzzles[1].geometry().horz() );
+        assertTrue( solved[1] );
+        assertValidSolution( puzzles[1] );
+    }
+
+    public void testGeometryTables()
+    {
+        SudokuGeometry geometry = MxNSudoku.initGrid( 12 ).geometry();
+        int size = geometry.horz();
+        assertEquals( 2 * 11 + 2 * 3, geometry.peerCount() );
+        for ( int cell = 0; cell < size * size; ++cell )
+        {
+            int ii = cell / size;
+            int jj = cell % size;
+            assertEquals( (ii / 3) * 3 + jj / 4, geometry.inWhichSquare( ii, jj ) );
+            for ( int nth = 0; nth < geometry.peerCount(); ++nth )
+            {
+                int peer = geometry.peer( cell, nth );
+                assertTrue( peer != cell );
+                assertTrue( peer / size == ii || peer % size == jj || geometry.squareOf( peer ) == geometry.squareOf( cell ) );
+            }
+        }
+        for ( int nth = 0; nth < size; ++nth )
+        {
+            assertEquals( 1, geometry.squareOf( geometry.squareCell( 1, nth ) ) );
+            assertEquals( geometry.squareCell( 1, nth ), geometry.unitCell( 2 * size + 1, nth ) );
+            assertEquals( nth * size + 5, geometry.unitCell( size + 5, nth ) );
+        }
+    }
+
+    public void testSquareExclusion()
+    {
+        // Rows 2 and 3 and columns 2 and 3 leave the 1 of the top left square only one cell
+        String[][] grid = Puzzle.gridFactory( 9, 9 );
+        grid[1][4] = "1";
+        grid[2][7] = "1";
+        grid[5][1] = "1";
+        grid[8][2] = "1";
+        Puzzle puzzle = new Puzzle( SudokuGeometry.DEFAULT, grid );
+        assertTrue( puzzle.possibles().size( 0, 0 ) > 1 );
+
+        assertTrue( new Solver().solveExclusions( puzzle ) );
+        assertEquals( "1", puzzle.get( 0, 0 ) );
+    }
+
+    public void testTechniquesKeepTheSolution()
+    {
+        Puzzle singles = LineFormat.parse( BatchSolverTest.HARD );
+        new Solver( SolveListener.NONE, Collections.<Technique>emptyList() ).deduce( singles );
+        Puzzle puzzle = LineFormat.parse( BatchSolverTest.HARD );
+        new Solver().deduce( puzzle );
+
+        int left = 0, leftBySingles = 0;
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            int ii = cell / 9;
+            int jj = cell % 9;
+            String answer = BatchSolverTest.HARD_SOLVED.substring( cell, cell + 1 );
+            if ( puzzle.isEmpty( ii, jj ) )
+            {
+                assertTrue( "grid[" + ii + "][" + jj + "]", puzzle.possibles().contains( ii, jj, SudokuGeometry.DEFAULT.indexOf( answer ) ) );
+            }
+            else
+            {
+                assertEquals( answer, puzzle.get( ii, jj ) );
+            }
+            left += puzzle.possibles().size( ii, jj );
+            leftBySingles += singles.possibles().size( ii, jj );
+        }
+        assertTrue( left < leftBySingles );
+    }
+
+    public void testTraceListener()
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 2 );
+        int blanks = 0;
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            blanks += puzzle.isEmpty( cell / 9, cell % 9 ) ? 1 : 0;
+        }
+
+        StringBuilder trace = new StringBuilder();
+        assertTrue( new Solver( new TraceListener( trace ) ).solve( puzzle ) );
+        int plays = 0;
+        for ( String line : trace.toString().split( "\n" ) )
+        {
+            assertTrue( line, line.startsWith( "{\"event\":" ) && line.endsWith( "}" ) );
+            plays += line.startsWith( "{\"event\":\"play\"" ) ? 1 : 0;
+        }
+        assertEquals( blanks, plays );
+    }
+
+    public void testSolverMetrics() throws Exception
+    {
+        Puzzle puzzle = MxNSudoku.initGrid( 1 );
+        long blanks = 0;
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            blanks += puzzle.isEmpty( cell / 9, cell % 9 ) ? 1 : 0;
+        }
+
+        SolverMetrics metrics = new SolverMetrics();
+        assertTrue( new Solver( metrics ).solve( puzzle ) );
+        long placed = 0;
+        for ( long count : metrics.getPlacements().values() )
+        {
+            placed += count;
+        }
+        // Game 1 has to guess, and a wrong guess plays moves that get taken back
+        assertTrue( placed >= blanks );
+        assertTrue( metrics.getSearchNodes() > 1 );
+        assertTrue( metrics.getMaxDepth() > 0 );
+        assertTrue( metrics.getPhaseRuns().get( "propagation" ) > 0 );
+
+        metrics.register();
+        assertTrue( ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName( SolverMetrics.OBJECT_NAME ) ) );
+        metrics.reset();
+        assertEquals( 0, metrics.getSearchNodes() );
+    }
+
+    public void testCachingEngine()
+    {
+        CachingEngine cache = new CachingEngine( new Solver( SolveListener.NONE ), 2 );
+        Puzzle puzzle = LineFormat.parse( BatchSolverTest.HARD );
+        assertTrue( cache.solve( puzzle ) );
+        assertEquals( BatchSolverTest.HARD_SOLVED, LineFormat.format( puzzle ) );
+
+        // Relabel 1..9 as 9..1, swap the first two bands and rows 7 and 9, then transpose
+        int[] rows = { 3, 4, 5, 0, 1, 2, 8, 7, 6 };
+        StringBuilder variant = new StringBuilder();
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            char given = BatchSolverTest.HARD.charAt( rows[cell % 9] * 9 + cell / 9 );
+            variant.append( given == '.' ? '.' : (char) ( '9' - given + '1' ) );
+        }
+        puzzle = LineFormat.parse( variant.toString() );
+        String[][] givens = puzzle.toGrid();
+        assertTrue( cache.solve( puzzle ) );
+        assertEquals( 1, cache.hits() );
+        assertEquals( 1, cache.misses() );
+        assertValidSolution( puzzle );
+        for ( int cell = 0; cell < 81; ++cell )
+        {
+            if ( !givens[cell / 9][cell % 9].equals( Puzzle.EMPTY ) )
+            {
+                assertEquals( givens[cell / 9][cell % 9], puzzle.get( cell / 9, cell % 9 ) );
+            }
+        }
+
+        assertTrue( cache.solve( MxNSudoku.initGrid( 2 ) ) );
+        assertTrue( cache.solve( MxNSudoku.initGrid( 3 ) ) );
+        assertEquals( 1, cache.evictions() );
+        assertEquals( 2, cache.size() );
+
+        // No solution, but propagation fills in a row first; a hit leaves the same board as the miss
+        puzzle = LineFormat.parse( "..12....21.3..4." );
+        assertFalse( cache.solve( puzzle ) );
+        assertEquals( "..12123421.3..4.", LineFormat.format( puzzle ) );
+        puzzle = LineFormat.parse( "..12....21.3..4." );
+        assertFalse( cache.solve( puzzle ) );
+        assertEquals( 2, cache.hits() );
+        assertEquals( "..12123421.3..4.", LineFormat.format( puzzle ) );
+    }
+
+    public void testWideAlphabet()
+    {
+        // 81 symbols take two words a cell; start from a pattern solution and blank a third of it
+        SudokuGeometry geometry = SudokuGeometry.forSize( 81 );
+        assertEquals( 9, geometry.rowsInSquare() );
+        short[] givens = new short[81 * 81];
+        java.util.Random random = new java.util.Random( 81L );
+        for ( int cell = 0; cell < givens.length; ++cell )
+        {
+            int ii = cell / 81;
+            int jj = cell % 81;
+            givens[cell] = (short) ( random.nextInt( 3 ) == 0 ? 0 : ( 9 * ( ii % 9 ) + ii / 9 + jj ) % 81 + 1 );
+        }
+        Puzzle puzzle = new Puzzle( geometry, givens );
+        assertEquals( 2, puzzle.possibles().words() );
+        assertTrue( new Solver( SolveListener.NONE ).solve( puzzle ) );
+        assertFalse( puzzle.hasConflicts() );
+
+        Puzzle links = new Puzzle( geometry, givens );
+        assertTrue( new DancingLinks().solve( links ) );
+        assertFalse( links.hasConflicts() );
+    }
+
+    public void testReadPuzzleFileGeometry() throws Exception
+    {
+        java.io.File file = java.io.File.createTempFile( "sixteen", ".sdk" );
+        file.deleteOnExit();
+        java.io.Writer out = new java.io.OutputStreamWriter( new java.io.FileOutputStream( file ), "UTF-8" );
+        out.write( "# geometry 2x3\n# symbols do re mi fa so la\n" );
+        out.write( "do re mi fa so la\nfa so la do re mi\nre mi do so la fa\n" );
+        out.write( "so la fa re mi do\nmi do re la fa so\n. . . . . .\n" );
+        out.close();
+
+        Puzzle puzzle = MxNSudoku.readPuzzleFile( file.getPath() );
+        assertEquals( 2, puzzle.geometry().rowsInSquare() );
+        assertEquals( "mi", puzzle.get( 1, 5 ) );
+        assertTrue( new Solver( SolveListener.NONE ).solve( puzzle ) );
+        assertEquals( "la", puzzle.get( 5, 0 ) );
+    }
+
+    public void testSolveBudget()
+    {
+        SolveBudget oneNode = SolveBudget.UNLIMITED.withMaxNodes( 1 );
+        Engine[] engines = { new Solver(), new DancingLinks(), new ParallelSolver( new Solver() ) };
+        for ( Engine engine : engines )
+        {
+            String name = engine.getClass().getSimpleName();
+            Puzzle puzzle = MxNSudoku.initGrid( 1 );
+            String[][] givens = puzzle.toGrid();
+            assertEquals( name, SolveStatus.TIMEOUT, engine.solve( puzzle, oneNode.withMaxTrail( 1 << 20 ), CancellationToken.NONE ) );
+            assertFalse( name, puzzle.isSolved() );
+            assertEquals( name, givens[0][0], puzzle.get( 0, 0 ) );
+
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            assertEquals( name, SolveStatus.CANCELLED, engine.solve( MxNSudoku.initGrid( 1 ), SolveBudget.UNLIMITED, token ) );
+
+            SolveBudget roomy = SolveBudget.UNLIMITED.withTimeout( 1, java.util.concurrent.TimeUnit.MINUTES );
+            assertEquals( name, SolveStatus.SOLVED, engine.solve( puzzle, roomy, new CancellationToken() ) );
+            assertValidSolution( puzzle );
+        }
+    }
+
+    public void testGridRenderer() throws Exception
+    {
+        Puzzle puzzle = new Puzzle( SudokuGeometry.forSize( 4 ) );
+        puzzle.updateSquare( 0, 0, "1" );
+        puzzle.updateSquare( 3, 3, "2" );
+        GridRenderer renderer = new GridRenderer( puzzle.geometry() );
+
+        String grid = "\nsudoku grid, current state\n"
+                + "==================\n"
+                + "|| 1 |   ||   |   ||\n"
+                + "------------------\n"
+                + "||   |   ||   |   ||\n"
+                + "==================\n"
+                + "||   |   ||   |   ||\n"
+                + "------------------\n"
+                + "||   |   ||   | 2 ||\n"
+                + "==================\n";
+        java.io.StringWriter out = new java.io.StringWriter();
+        renderer.writeGrid( puzzle, out );
+        assertEquals( grid, out.toString() );
+        assertEquals( grid, renderer.grid( puzzle ).toString() );
+
+        String possibles = renderer.possibles( puzzle ).toString();
+        assertTrue( possibles, possibles.contains( "\n|| [] | [2, 3, 4] || [2, 3, 4] | [3, 4] ||\n" ) );
+        assertTrue( possibles, possibles.contains( "\n|| [3, 4] | [1, 3, 4] || [1, 3, 4] | [] ||\n" ) );
+    }
+}